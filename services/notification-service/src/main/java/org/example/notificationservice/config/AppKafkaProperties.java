@@ -8,5 +8,74 @@ import org.springframework.stereotype.Component;
 @Component
 @ConfigurationProperties(prefix = "app.kafka")
 public class AppKafkaProperties {
+
+    /** Суффикс DLT, который @RetryableTopic добавляет к {@link #retryTopic}. */
+    public static final String DLT_SUFFIX = "-dlt";
+
     private String userTopic = "user.account";
+
+    /** Партиции user.account (создаёт userdb-api); значение общее для обоих сервисов. */
+    private int userTopicPartitions = 6;
+
+    /**
+     * Вход в цепочку повторов: сюда основной листенер сразу перекладывает событие, письмо
+     * по которому не ушло, и идёт дальше. Дальше — {@code <retryTopic>-retry-N} с растущей
+     * задержкой и {@code <retryTopic>-dlt}.
+     */
+    private String retryTopic = "user.account.mail";
+
+    private Listener listener = new Listener();
+
+    private Retry retry = new Retry();
+
+    private Backpressure backpressure = new Backpressure();
+
+    public String getDeadLetterTopic() {
+        return retryTopic + DLT_SUFFIX;
+    }
+
+    @Data
+    public static class Listener {
+        /**
+         * Потоков консьюмера на инстанс. Больше, чем партиций на инстанс, смысла нет:
+         * лишние потоки простаивают. По умолчанию = userTopicPartitions (один инстанс).
+         */
+        private int concurrency = 6;
+
+        /** Batch-листенер с параллельной отправкой писем вместо поштучного. */
+        private boolean batchEnabled = false;
+
+        /**
+         * Максимум параллельных дорожек отправки на инстанс в batch-режиме; каждая занимает
+         * одно SMTP-соединение, поэтому больше {@code app.mail.pool.max-total} ставить незачем.
+         */
+        private int maxInFlight = 16;
+    }
+
+    /** Задержки между попытками: delay, delay * multiplier, ... но не больше maxDelay. */
+    @Data
+    public static class Retry {
+        /** Всего попыток в цепочке повторов, включая первую (из {@link #retryTopic}). */
+        private int attempts = 4;
+        private long delayMs = 1000;
+        private double multiplier = 5;
+        private long maxDelayMs = 60_000;
+    }
+
+    /**
+     * Пауза консьюмера user.account, пока отправка не успевает: poll продолжается (heartbeat,
+     * max.poll.interval не нарушается), но новых записей контейнер не берёт.
+     */
+    @Data
+    public static class Backpressure {
+        private boolean enabled = true;
+
+        /** Писем в работе (ожидают токен домена или отправляются), при котором ставим паузу. */
+        private int highWatermark = 200;
+
+        /** Снимаем паузу, когда писем в работе стало не больше этого. */
+        private int lowWatermark = 50;
+
+        private long checkIntervalMs = 200;
+    }
 }
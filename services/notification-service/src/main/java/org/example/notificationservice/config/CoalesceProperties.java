@@ -0,0 +1,22 @@
+package org.example.notificationservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.notification.coalesce")
+public class CoalesceProperties {
+    /** Включает окно склейки для основного топика (имеет приоритет над batch-режимом). */
+    private boolean enabled = false;
+
+    /** Сколько держать события пользователя с момента первого из них. */
+    private long windowMs = 3_000;
+
+    /** Как часто проверять истёкшие окна. */
+    private long tickMs = 100;
+
+    /** При стольких событиях в буфере окна закрываются досрочно. */
+    private int maxBuffered = 10_000;
+}
@@ -0,0 +1,36 @@
+package org.example.notificationservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.notification.dedup")
+public class DedupProperties {
+    private boolean enabled = true;
+
+    /** Точный LRU последних отправленных eventId — в нём ищем подтверждение «уже было». */
+    private int lruSize = 100_000;
+
+    /**
+     * Ёмкость одного поколения Bloom-фильтра. Поколений два: заполненное текущее становится
+     * предыдущим, самое старое выбрасывается, поэтому фильтр помнит от 1 до 2 поколений id.
+     */
+    private long bloomIdsPerGeneration = 1_000_000;
+
+    /** Вероятность ложного срабатывания одного поколения. */
+    private double bloomFalsePositiveRate = 1e-6;
+
+    /**
+     * Что делать, если Bloom говорит «возможно было», а в LRU id нет (ушёл из окна LRU или
+     * ложное срабатывание). false — отправить (не теряем письма, дубль за окном LRU возможен),
+     * true — пропустить (дубли ловятся на всём горизонте Bloom, ~2 * fpp новых писем теряется).
+     */
+    private boolean trustBloomBeyondLru = false;
+
+    /** Файл снапшота; пусто — состояние живёт только в памяти. */
+    private String file;
+
+    private long persistIntervalMs = 60_000;
+}
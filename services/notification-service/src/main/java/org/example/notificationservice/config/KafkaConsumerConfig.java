@@ -0,0 +1,108 @@
+package org.example.notificationservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.example.notificationservice.kafka.EventCoalescer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    public static final String BATCH_FACTORY = "batchKafkaListenerContainerFactory";
+    public static final String COALESCING_FACTORY = "coalescingKafkaListenerContainerFactory";
+
+    /**
+     * Перекладывает упавшую запись из основного топика во вход цепочки повторов и ждёт
+     * подтверждения брокера: если публикация не удалась, исключение уходит наверх
+     * и оффсет не коммитится.
+     */
+    @Bean
+    public ConsumerRecordRecoverer retryForwarder(KafkaTemplate<Object, Object> template,
+                                                  AppKafkaProperties props,
+                                                  MeterRegistry meterRegistry) {
+        var publisher = new DeadLetterPublishingRecoverer(template,
+                (record, ex) -> new TopicPartition(props.getRetryTopic(), -1));
+        publisher.setWaitForSendResultTimeout(Duration.ofSeconds(10));
+        Counter forwarded = Counter.builder("notification.mail.forwarded-to-retry")
+                .description("Events moved from the main topic to the retry chain")
+                .register(meterRegistry);
+        return (record, ex) -> {
+            publisher.accept(record, ex);
+            forwarded.increment();
+        };
+    }
+
+    /**
+     * Обработчик ошибок основного (поштучного) листенера, Boot подхватывает его сам:
+     * без повторов на месте, упавшее событие сразу уходит в retry-топик, и партиция
+     * не стоит за одним плохим адресом или недоступным SMTP.
+     */
+    @Bean
+    public CommonErrorHandler kafkaErrorHandler(ConsumerRecordRecoverer retryForwarder) {
+        return new DefaultErrorHandler(retryForwarder, new FixedBackOff(0, 0));
+    }
+
+    /**
+     * Фабрика для batch-режима: листенер получает весь poll целиком, оффсеты коммитятся
+     * после возврата из метода (AckMode.BATCH). Если листенер бросил исключение, батч
+     * повторяется, а после исчерпания попыток каждая запись уходит в retry-топик.
+     */
+    @Bean(BATCH_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            ConsumerRecordRecoverer retryForwarder,
+            @Value("${app.kafka.listener.batch-retry-interval-ms:1000}") long retryIntervalMs,
+            @Value("${app.kafka.listener.batch-retry-attempts:2}") long retryAttempts) {
+        var factory = new ConcurrentKafkaListenerContainerFactory<Object, Object>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(retryForwarder,
+                new FixedBackOff(retryIntervalMs, retryAttempts)));
+        return factory;
+    }
+
+    /**
+     * Фабрика для режима склейки: ручные подтверждения (EventCoalescer подтверждает записи
+     * по порядку, когда закрывается окно) и EventCoalescer как слушатель ребаланса, чтобы
+     * закрыть окна отзываемых партиций до коммита.
+     */
+    @Bean(COALESCING_FACTORY)
+    @ConditionalOnProperty(name = "app.notification.coalesce.enabled", havingValue = "true")
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> coalescingKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            CommonErrorHandler kafkaErrorHandler,
+            EventCoalescer coalescer) {
+        var factory = new ConcurrentKafkaListenerContainerFactory<Object, Object>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(coalescer);
+        factory.setCommonErrorHandler(kafkaErrorHandler);
+        return factory;
+    }
+
+    /** Отправка писем — блокирующий SMTP I/O, поэтому виртуальные потоки; предел задаёт семафор в листенере. */
+    @Bean(destroyMethod = "close")
+    public ExecutorService mailDispatchExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("mail-dispatch-", 0).factory());
+    }
+}
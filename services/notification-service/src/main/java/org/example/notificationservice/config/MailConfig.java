@@ -0,0 +1,42 @@
+package org.example.notificationservice.config;
+
+import org.example.notificationservice.mail.PooledJavaMailSender;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Properties;
+
+/**
+ * Заменяет JavaMailSender из автоконфигурации на пул долгоживущих SMTP-соединений.
+ * Настройки сервера по-прежнему берутся из {@code spring.mail.*}; MailProperties включаем
+ * сами, потому что MailSenderAutoConfiguration при своём бине MailSender отключается целиком.
+ */
+@Configuration
+@EnableConfigurationProperties(MailProperties.class)
+@ConditionalOnProperty(name = "app.mail.pool.enabled", havingValue = "true", matchIfMissing = true)
+public class MailConfig {
+
+    @Bean
+    public PooledJavaMailSender mailSender(MailProperties mail, MailPoolProperties pool) {
+        var sender = new PooledJavaMailSender(pool);
+        sender.setHost(mail.getHost());
+        if (mail.getPort() != null) {
+            sender.setPort(mail.getPort());
+        }
+        sender.setUsername(mail.getUsername());
+        sender.setPassword(mail.getPassword());
+        sender.setProtocol(mail.getProtocol());
+        if (mail.getDefaultEncoding() != null) {
+            sender.setDefaultEncoding(mail.getDefaultEncoding().name());
+        }
+        if (!mail.getProperties().isEmpty()) {
+            var props = new Properties();
+            props.putAll(mail.getProperties());
+            sender.setJavaMailProperties(props);
+        }
+        return sender;
+    }
+}
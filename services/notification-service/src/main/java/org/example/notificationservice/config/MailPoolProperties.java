@@ -0,0 +1,39 @@
+package org.example.notificationservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.mail.pool")
+public class MailPoolProperties {
+    /** false — обычный JavaMailSenderImpl из автоконфигурации Boot (соединение на каждое письмо). */
+    private boolean enabled = true;
+
+    /** Максимум одновременно открытых SMTP-соединений. */
+    private int maxTotal = 16;
+
+    /** Сколько ждать свободное соединение, прежде чем считать отправку неудачной. */
+    private Duration maxWait = Duration.ofSeconds(10);
+
+    /** После стольких писем соединение закрывается: серверы часто ограничивают письма на сессию. */
+    private int maxMessagesPerConnection = 100;
+
+    /** Простаивающее дольше соединение закрывается фоновым evictor'ом. */
+    private Duration idleTimeout = Duration.ofMinutes(1);
+
+    private Duration evictionInterval = Duration.ofSeconds(30);
+
+    /** NOOP перед выдачей соединения из пула: отсеивает соединения, закрытые сервером. */
+    private boolean testOnBorrow = true;
+
+    /**
+     * Отправка из виртуального потока выполняется на платформенном потоке пула: SMTPTransport
+     * держит свой монитор на время сетевого I/O, и на JDK 21 такой виртуальный поток занял бы
+     * carrier-поток целиком.
+     */
+    private boolean offloadVirtualThreads = true;
+}
@@ -0,0 +1,35 @@
+package org.example.notificationservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.mail.rate-limit")
+public class MailRateLimitProperties {
+    private boolean enabled = true;
+
+    /** Лимит для доменов, которых нет в {@link #domains}. */
+    private Limit defaults = new Limit();
+
+    /** Лимиты крупных почтовиков, ключ — домен получателя в нижнем регистре. */
+    private Map<String, Limit> domains = new HashMap<>();
+
+    /** Дольше письмо токена не ждёт: отправка считается неудачной и уходит в повтор. */
+    private Duration maxWait = Duration.ofSeconds(30);
+
+    public Limit limitFor(String domain) {
+        return domains.getOrDefault(domain, defaults);
+    }
+
+    @Data
+    public static class Limit {
+        private double permitsPerSecond = 10;
+        private int burst = 20;
+    }
+}
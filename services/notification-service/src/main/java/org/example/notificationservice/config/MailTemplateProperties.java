@@ -0,0 +1,31 @@
+package org.example.notificationservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.mail.templates")
+public class MailTemplateProperties {
+    /** Локаль, если у события её нет или для неё нет шаблона. */
+    private String defaultLocale = "ru";
+
+    /**
+     * Шаблоны: тип письма (USER_CREATED, USER_DELETED, DIGEST) -> локаль -> шаблон. В тексте
+     * доступны {@code {{email}}}, {@code {{userId}}}, {@code {{eventId}}}, {@code {{occurredAt}}};
+     * в html значения экранируются.
+     */
+    private Map<String, Map<String, Template>> messages = new HashMap<>();
+
+    @Data
+    public static class Template {
+        private String subject;
+        private String text;
+        /** Необязателен: без него письмо уходит только текстом. */
+        private String html;
+    }
+}
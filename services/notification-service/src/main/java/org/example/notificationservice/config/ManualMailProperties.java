@@ -0,0 +1,24 @@
+package org.example.notificationservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.mail.manual")
+public class ManualMailProperties {
+    /** Сколько писем ручной отправки может ждать в очереди; сверх этого — 429, пачка больше всей очереди — 413. */
+    private int queueCapacity = 1000;
+
+    /** Потоки, разбирающие очередь; больше max-total пула SMTP ставить смысла нет. */
+    private int workers = 4;
+
+    /** Сколько запрос готов подождать места в очереди; 0 — отказ сразу. */
+    private Duration offerTimeout = Duration.ZERO;
+
+    /** При остановке недоставленное из очереди досылается не дольше этого. */
+    private Duration drainTimeout = Duration.ofSeconds(10);
+}
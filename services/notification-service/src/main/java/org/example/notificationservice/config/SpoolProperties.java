@@ -0,0 +1,41 @@
+package org.example.notificationservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.notification.spool")
+public class SpoolProperties {
+    /** Листенер пишет события в журнал на диске и коммитит оффсеты сразу; письма шлёт фоновый отправитель. */
+    private boolean enabled = false;
+
+    private String dir;
+
+    /** Размер сегмента журнала; сегмент целиком отображается в память. */
+    private int segmentBytes = 64 * 1024 * 1024;
+
+    /** msync после каждой записи: без него запись переживает падение процесса, но не ОС. */
+    private boolean fsync = true;
+
+    /** Сколько писем из журнала отправляется одновременно. */
+    private int maxInFlight = 16;
+
+    /**
+     * Сколько записей, прочитанных из журнала, может ждать отправки в одной дорожке. В памяти
+     * их не больше {@code max-in-flight * lane-capacity}; остальное ждёт в журнале.
+     */
+    private int laneCapacity = 64;
+
+    /** Как часто сохраняется позиция «всё до неё отправлено»; после рестарта повторится не больше этого. */
+    private long checkpointIntervalMs = 1000;
+
+    /** Непрочитанного в журнале больше этого — консьюмер встаёт на паузу (backpressure). */
+    private long maxBacklog = 1_000_000;
+
+    /** При остановке дождаться отправляемых писем не дольше этого; остальное повторится после рестарта. */
+    private Duration drainTimeout = Duration.ofSeconds(10);
+}
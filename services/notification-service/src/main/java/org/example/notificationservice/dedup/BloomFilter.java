@@ -0,0 +1,86 @@
+package org.example.notificationservice.dedup;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасный Bloom-фильтр на {@link AtomicLongArray}: запись и чтение без блокировок.
+ * k позиций считаются из двух 64-битных хэшей (h1 + i * h2, Kirsch–Mitzenmacher).
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashes;
+    private final AtomicLong insertions;
+
+    private BloomFilter(long bitSize, int hashes, AtomicLongArray words, long insertions) {
+        this.bitSize = bitSize;
+        this.hashes = hashes;
+        this.words = words;
+        this.insertions = new AtomicLong(insertions);
+    }
+
+    /** m = -n ln p / ln²2, k = m / n ln 2 — оптимум для n элементов и вероятности p. */
+    static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        long words = Math.max(1, (bits + 63) / 64);
+        int k = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        return new BloomFilter(words * 64, k, new AtomicLongArray(Math.toIntExact(words)), 0);
+    }
+
+    boolean mightContain(long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitSize);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void put(long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitSize);
+            long mask = 1L << bit;
+            words.getAndUpdate((int) (bit >>> 6), w -> w | mask);
+        }
+        insertions.incrementAndGet();
+    }
+
+    long insertions() {
+        return insertions.get();
+    }
+
+    long sizeInBytes() {
+        return bitSize / 8;
+    }
+
+    int hashes() {
+        return hashes;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(bitSize);
+        out.writeInt(hashes);
+        out.writeLong(insertions.get());
+        for (int i = 0; i < words.length(); i++) {
+            out.writeLong(words.get(i));
+        }
+    }
+
+    static BloomFilter readFrom(DataInput in) throws IOException {
+        long bitSize = in.readLong();
+        int hashes = in.readInt();
+        long insertions = in.readLong();
+        var words = new AtomicLongArray(Math.toIntExact(bitSize / 64));
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, in.readLong());
+        }
+        return new BloomFilter(bitSize, hashes, words, insertions);
+    }
+}
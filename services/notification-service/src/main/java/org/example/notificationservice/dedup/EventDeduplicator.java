@@ -0,0 +1,251 @@
+package org.example.notificationservice.dedup;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.notificationservice.config.DedupProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Дедупликация событий по {@code eventId} перед отправкой письма: Kafka доставляет
+ * at-least-once, и после ребаланса те же записи приходят повторно.
+ * <p>
+ * Два уровня: вращающийся Bloom-фильтр (два поколения, ~29 бит на id при p = 1e-6)
+ * отвечает «точно не было» без блокировок — это путь почти всех новых событий; на «возможно
+ * было» ищем id в точном LRU. Что делать, если Bloom сработал, а LRU id не знает, решает
+ * {@code trust-bloom-beyond-lru}. Id отмечается только после успешной отправки, поэтому
+ * упавшее письмо дедупликацией не блокируется и уйдёт при повторе.
+ * <p>
+ * Состояние периодически и при остановке пишется в файл и читается при старте.
+ */
+@Slf4j
+@Component
+public class EventDeduplicator implements MeterBinder {
+
+    private static final int MAGIC = 0x44445550; // "DDUP"
+    private static final int VERSION = 1;
+
+    private final DedupProperties props;
+    private final LinkedHashMap<String, Boolean> lru;
+    private volatile Generations generations;
+
+    private final AtomicLong lruHits = new AtomicLong();
+    private final AtomicLong bloomHits = new AtomicLong();
+    private final AtomicLong unconfirmed = new AtomicLong();
+
+    private record Generations(BloomFilter current, BloomFilter previous) {}
+
+    public EventDeduplicator(DedupProperties props) {
+        this.props = props;
+        int maxSize = props.getLruSize();
+        this.lru = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.generations = new Generations(newBloom(), null);
+        load();
+    }
+
+    /** true — письмо по этому событию уже отправлялось. События без eventId не дедуплицируются. */
+    public boolean isDuplicate(String eventId) {
+        if (!props.isEnabled() || eventId == null) {
+            return false;
+        }
+        long h1 = hash1(eventId);
+        long h2 = hash2(eventId);
+        Generations g = generations;
+        if (!g.current().mightContain(h1, h2) && (g.previous() == null || !g.previous().mightContain(h1, h2))) {
+            return false;
+        }
+        synchronized (lru) {
+            if (lru.get(eventId) != null) {
+                lruHits.incrementAndGet();
+                return true;
+            }
+        }
+        if (props.isTrustBloomBeyondLru()) {
+            bloomHits.incrementAndGet();
+            return true;
+        }
+        // ложное срабатывание Bloom или дубль старше окна LRU — различить нельзя
+        unconfirmed.incrementAndGet();
+        return false;
+    }
+
+    public void markDelivered(String eventId) {
+        if (!props.isEnabled() || eventId == null) {
+            return;
+        }
+        BloomFilter current = generations.current();
+        current.put(hash1(eventId), hash2(eventId));
+        synchronized (lru) {
+            lru.put(eventId, Boolean.TRUE);
+        }
+        if (current.insertions() >= props.getBloomIdsPerGeneration()) {
+            rotate(current);
+        }
+    }
+
+    private synchronized void rotate(BloomFilter full) {
+        if (generations.current() != full) {
+            return; // уже повернул другой поток
+        }
+        generations = new Generations(newBloom(), full);
+        log.info("Dedup Bloom filter rotated: generation of {} ids moved to previous", full.insertions());
+    }
+
+    private BloomFilter newBloom() {
+        return BloomFilter.create(props.getBloomIdsPerGeneration(), props.getBloomFalsePositiveRate());
+    }
+
+    @Scheduled(fixedDelayString = "${app.notification.dedup.persist-interval-ms:60000}",
+            initialDelayString = "${app.notification.dedup.persist-interval-ms:60000}")
+    public void persist() {
+        if (!StringUtils.hasText(props.getFile())) {
+            return;
+        }
+        Path file = Path.of(props.getFile());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Generations g = generations;
+        List<String> ids;
+        synchronized (lru) {
+            ids = new ArrayList<>(lru.keySet()); // от давних к свежим
+        }
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(props.getBloomIdsPerGeneration());
+                out.writeDouble(props.getBloomFalsePositiveRate());
+                g.current().writeTo(out);
+                out.writeBoolean(g.previous() != null);
+                if (g.previous() != null) {
+                    g.previous().writeTo(out);
+                }
+                out.writeInt(ids.size());
+                for (String id : ids) {
+                    out.writeUTF(id);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Dedup state saved: file={}, lruIds={}", file, ids.size());
+        } catch (IOException e) {
+            log.warn("Failed to save dedup state to {}: {}", file, e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persist();
+    }
+
+    private void load() {
+        if (!StringUtils.hasText(props.getFile()) || !Files.exists(Path.of(props.getFile()))) {
+            return;
+        }
+        Path file = Path.of(props.getFile());
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("Dedup state {} has unknown format, starting empty", file);
+                return;
+            }
+            if (in.readLong() != props.getBloomIdsPerGeneration() || in.readDouble() != props.getBloomFalsePositiveRate()) {
+                // размеры фильтра поменялись — старые биты к новым параметрам не подходят
+                log.warn("Dedup Bloom settings changed since {} was written, starting empty", file);
+                return;
+            }
+            BloomFilter current = BloomFilter.readFrom(in);
+            BloomFilter previous = in.readBoolean() ? BloomFilter.readFrom(in) : null;
+            int count = in.readInt();
+            synchronized (lru) {
+                for (int i = 0; i < count; i++) {
+                    lru.put(in.readUTF(), Boolean.TRUE);
+                }
+            }
+            generations = new Generations(current, previous);
+            log.info("Dedup state loaded: file={}, lruIds={}, bloomIds={}", file, lru.size(),
+                    current.insertions() + (previous != null ? previous.insertions() : 0));
+        } catch (IOException e) {
+            log.warn("Failed to load dedup state from {}, starting empty: {}", file, e.toString());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("notification.dedup.duplicates", lruHits, AtomicLong::get)
+                .tag("source", "lru").description("Events skipped as already delivered").register(registry);
+        FunctionCounter.builder("notification.dedup.duplicates", bloomHits, AtomicLong::get)
+                .tag("source", "bloom").register(registry);
+        FunctionCounter.builder("notification.dedup.bloom.unconfirmed", unconfirmed, AtomicLong::get)
+                .description("Bloom positives not confirmed by the LRU (false positives or ids older than the LRU)")
+                .register(registry);
+        Gauge.builder("notification.dedup.lru.size", this, d -> d.lruSize()).register(registry);
+        Gauge.builder("notification.dedup.bloom.bytes", this, d -> d.bloomBytes())
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("notification.dedup.bloom.fill", this,
+                d -> (double) d.generations.current().insertions() / props.getBloomIdsPerGeneration())
+                .description("Fill ratio of the current Bloom generation").register(registry);
+    }
+
+    int lruSize() {
+        synchronized (lru) {
+            return lru.size();
+        }
+    }
+
+    long bloomBytes() {
+        Generations g = generations;
+        return g.current().sizeInBytes() + (g.previous() != null ? g.previous().sizeInBytes() : 0);
+    }
+
+    // два независимых 64-битных хэша (FNV-1a с разными базисами + финализатор murmur3)
+    static long hash1(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return fmix64(h);
+    }
+
+    static long hash2(String s) {
+        long h = 0x9e3779b97f4a7c15L;
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0xff51afd7ed558ccdL;
+        }
+        // нечётный шаг: позиции h1 + i * h2 не зациклятся раньше времени
+        return fmix64(h) | 1;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -10,11 +10,21 @@ import java.time.Instant;
 @NoArgsConstructor @AllArgsConstructor
 @ToString
 public class UserEvent {
-    public enum Type { USER_CREATED, USER_DELETED }
+    public enum Type { USER_CREATED, USER_UPDATED, USER_DELETED }
     private String eventId;
     private Type eventType;
     private Long userId;
     private String email;
     private Instant occurredAt;
     private String source;
+    /** Язык писем получателя (BCP 47, например {@code en} или {@code ru-RU}); нет — default-locale. */
+    private String locale;
+
+    /**
+     * Ключ записи в Kafka: userId, как у user.account, — с ним записи основного топика приходят
+     * в retry-топик и из DLT. У ручных писем пользователя нет, у них ключ — адрес получателя.
+     */
+    public String key() {
+        return userId != null ? String.valueOf(userId) : email;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package org.example.notificationservice.kafka;
+
+import lombok.RequiredArgsConstructor;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.example.notificationservice.mail.MailService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/** {@code /actuator/backpressure}: пауза консьюмера, письма в работе, хвост спула и отставание по партициям. */
+@Component
+@ConditionalOnProperty(name = "app.kafka.backpressure.enabled", havingValue = "true", matchIfMissing = true)
+@Endpoint(id = "backpressure")
+@RequiredArgsConstructor
+public class BackpressureEndpoint {
+
+    private final ConsumerBackpressure backpressure;
+    private final MailService mailService;
+    private final AppKafkaProperties props;
+
+    @ReadOperation
+    public Status status() {
+        var cfg = props.getBackpressure();
+        return new Status(backpressure.isPaused(), backpressure.pauseCount(), mailService.inFlight(),
+                backpressure.coalesceBuffered(), backpressure.spoolBacklog(),
+                cfg.getHighWatermark(), cfg.getLowWatermark(), backpressure.lagByPartition());
+    }
+
+    public record Status(boolean paused, long pauses, int inFlight, int coalesceBuffered, long spoolBacklog,
+                         int highWatermark, int lowWatermark, Map<String, Long> lag) {}
+}
@@ -0,0 +1,112 @@
+package org.example.notificationservice.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.example.notificationservice.config.KafkaConsumerConfig;
+import org.example.notificationservice.events.UserEvent;
+import org.example.notificationservice.mail.MailService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch-режим ({@code app.kafka.listener.batch-enabled=true}, если не включены склейка и спул):
+ * весь poll раскладывается на дорожки по ключу (userId), дорожки отправляются
+ * параллельно — не больше {@code max-in-flight} одновременно на инстанс. Дорожка уходит одним вызовом
+ * {@link MailService#sendAllFor}, то есть через одно SMTP-соединение из пула, а письма
+ * одного пользователя внутри неё идут по порядку.
+ * Упавшая запись перекладывается в retry-топик до возврата из метода, поэтому коммит
+ * оффсетов батча означает «отправлено или стоит в очереди на повтор».
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${app.kafka.listener.batch-enabled:false} and !${app.notification.coalesce.enabled:false}"
+        + " and !${app.notification.spool.enabled:false}")
+public class BatchNotificationListener {
+
+    private final MailService mailService;
+    private final ConsumerRecordRecoverer retryForwarder;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+
+    public BatchNotificationListener(MailService mailService,
+                                     ConsumerRecordRecoverer retryForwarder,
+                                     @Qualifier("mailDispatchExecutor") ExecutorService executor,
+                                     AppKafkaProperties props) {
+        this.mailService = mailService;
+        this.retryForwarder = retryForwarder;
+        this.executor = executor;
+        this.maxInFlight = props.getListener().getMaxInFlight();
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @KafkaListener(topics = "${app.kafka.user-topic}", concurrency = "${app.kafka.listener.concurrency}",
+            containerFactory = KafkaConsumerConfig.BATCH_FACTORY)
+    public void onUserEvents(List<ConsumerRecord<String, UserEvent>> records) {
+        long started = System.nanoTime();
+        List<List<ConsumerRecord<String, UserEvent>>> lanes = splitByKey(records);
+
+        var failed = new AtomicInteger();
+        CompletableFuture<?>[] tasks = lanes.stream()
+                .map(lane -> CompletableFuture.runAsync(() -> dispatch(lane, failed), executor))
+                .toArray(CompletableFuture[]::new);
+        // исключение здесь (retry-топик недоступен) — батч не коммитится и будет повторён
+        CompletableFuture.allOf(tasks).join();
+
+        log.info("Kafka batch handled: records={}, lanes={}, forwardedToRetry={}, took={}ms",
+                records.size(), lanes.size(), failed.get(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** Записи с одним ключом всегда попадают в одну дорожку и сохраняют порядок poll'а. */
+    private List<List<ConsumerRecord<String, UserEvent>>> splitByKey(List<ConsumerRecord<String, UserEvent>> records) {
+        int laneCount = Math.min(maxInFlight, records.size());
+        List<List<ConsumerRecord<String, UserEvent>>> lanes = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(new ArrayList<>());
+        }
+        for (var record : records) {
+            lanes.get(Math.floorMod(Objects.hashCode(record.key()), laneCount)).add(record);
+        }
+        lanes.removeIf(List::isEmpty);
+        return lanes;
+    }
+
+    private void dispatch(List<ConsumerRecord<String, UserEvent>> lane, AtomicInteger failed) {
+        Map<UserEvent, Exception> errors;
+        inFlight.acquireUninterruptibly();
+        try {
+            errors = mailService.sendAllFor(lane.stream().map(ConsumerRecord::value).toList());
+        } catch (Exception e) {
+            errors = new IdentityHashMap<>();
+            for (var record : lane) {
+                errors.put(record.value(), e);
+            }
+        } finally {
+            inFlight.release();
+        }
+
+        for (var record : lane) {
+            Exception error = errors.get(record.value());
+            if (error != null) {
+                log.warn("Mail failed, forwarding to retry topic: key={}, offset={}, error={}",
+                        record.key(), record.offset(), error.toString());
+                failed.incrementAndGet();
+                retryForwarder.accept(record, error);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.notificationservice.kafka;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.example.notificationservice.config.KafkaConsumerConfig;
+import org.example.notificationservice.events.UserEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Режим склейки ({@code app.notification.coalesce.enabled=true}): записи не обрабатываются
+ * сразу, а уходят в {@link EventCoalescer} вместе с Acknowledgment — коммит случится,
+ * когда окно пользователя закроется.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.notification.coalesce.enabled", havingValue = "true")
+public class CoalescingNotificationListener {
+
+    private final EventCoalescer coalescer;
+
+    @KafkaListener(topics = "${app.kafka.user-topic}", concurrency = "${app.kafka.listener.concurrency}",
+            containerFactory = KafkaConsumerConfig.COALESCING_FACTORY)
+    public void onUserEvent(ConsumerRecord<String, UserEvent> record, Acknowledgment ack) {
+        coalescer.offer(record, ack);
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.notificationservice.kafka;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.example.notificationservice.config.CoalesceProperties;
+import org.example.notificationservice.config.SpoolProperties;
+import org.example.notificationservice.mail.MailService;
+import org.example.notificationservice.spool.MailSpool;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backpressure для user.account: когда писем в работе больше high-watermark (медленный SMTP,
+ * троттлинг доменов), контейнеры листенера ставятся на паузу и снимаются с неё ниже
+ * low-watermark. На паузе консьюмер продолжает poll, поэтому ребаланса по max.poll.interval
+ * нет, а непрочитанное остаётся в Kafka, а не в памяти. В режиме склейки паузу ставит и
+ * заполненный буфер окна, в режиме спула — слишком длинный хвост журнала.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.kafka.backpressure.enabled", havingValue = "true", matchIfMissing = true)
+public class ConsumerBackpressure implements MeterBinder {
+
+    private static final String LAG_METRIC = "records-lag";
+    private static final String FETCH_GROUP = "consumer-fetch-manager-metrics";
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final MailService mailService;
+    private final ObjectProvider<EventCoalescer> coalescer;
+    private final ObjectProvider<MailSpool> spool;
+    private final AppKafkaProperties props;
+    private final CoalesceProperties coalesceProps;
+    private final SpoolProperties spoolProps;
+
+    private volatile boolean paused;
+    private final AtomicLong pauses = new AtomicLong();
+
+    public ConsumerBackpressure(KafkaListenerEndpointRegistry registry,
+                                MailService mailService,
+                                ObjectProvider<EventCoalescer> coalescer,
+                                ObjectProvider<MailSpool> spool,
+                                AppKafkaProperties props,
+                                CoalesceProperties coalesceProps,
+                                SpoolProperties spoolProps) {
+        this.registry = registry;
+        this.mailService = mailService;
+        this.coalescer = coalescer;
+        this.spool = spool;
+        this.props = props;
+        this.coalesceProps = coalesceProps;
+        this.spoolProps = spoolProps;
+    }
+
+    @Scheduled(fixedDelayString = "${app.kafka.backpressure.check-interval-ms:200}")
+    public void check() {
+        var cfg = props.getBackpressure();
+        int inFlight = mailService.inFlight();
+        int buffered = coalesceBuffered();
+        long backlog = spoolBacklog();
+        boolean overloaded = inFlight >= cfg.getHighWatermark() || buffered >= coalesceProps.getMaxBuffered()
+                || backlog >= spoolProps.getMaxBacklog();
+        boolean relieved = inFlight <= cfg.getLowWatermark() && buffered <= coalesceProps.getMaxBuffered() / 2
+                && backlog <= spoolProps.getMaxBacklog() / 2;
+
+        if (!paused && overloaded) {
+            paused = true;
+            pauses.incrementAndGet();
+            userTopicContainers().forEach(MessageListenerContainer::pause);
+            log.warn("Mail pipeline saturated, pausing {}: inFlight={}, coalesceBuffered={}, spoolBacklog={}",
+                    props.getUserTopic(), inFlight, buffered, backlog);
+        } else if (paused && relieved) {
+            paused = false;
+            userTopicContainers().forEach(MessageListenerContainer::resume);
+            log.info("Mail pipeline drained, resuming {}: inFlight={}, coalesceBuffered={}, spoolBacklog={}",
+                    props.getUserTopic(), inFlight, buffered, backlog);
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public long pauseCount() {
+        return pauses.get();
+    }
+
+    public int coalesceBuffered() {
+        EventCoalescer c = coalescer.getIfAvailable();
+        return c == null ? 0 : c.bufferedCount();
+    }
+
+    public long spoolBacklog() {
+        MailSpool s = spool.getIfAvailable();
+        return s == null ? 0 : s.backlog();
+    }
+
+    /** Отставание по партициям user.account из метрик консьюмеров: {@code "topic-partition" -> lag}. */
+    public Map<String, Long> lagByPartition() {
+        // в тегах метрик клиент Kafka заменяет точки в имени топика на '_'
+        String topicTag = props.getUserTopic().replace('.', '_');
+        Map<String, Long> lag = new TreeMap<>();
+        for (MessageListenerContainer container : userTopicContainers()) {
+            for (Map<MetricName, ? extends Metric> metrics : container.metrics().values()) {
+                metrics.forEach((name, metric) -> {
+                    if (LAG_METRIC.equals(name.name()) && FETCH_GROUP.equals(name.group())
+                            && topicTag.equals(name.tags().get("topic"))
+                            && metric.metricValue() instanceof Double value && !value.isNaN()) {
+                        lag.put(props.getUserTopic() + "-" + name.tags().get("partition"), value.longValue());
+                    }
+                });
+            }
+        }
+        return lag;
+    }
+
+    private List<MessageListenerContainer> userTopicContainers() {
+        return registry.getListenerContainers().stream()
+                .filter(c -> c.getContainerProperties().getTopics() != null
+                        && Arrays.asList(c.getContainerProperties().getTopics()).contains(props.getUserTopic()))
+                .toList();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        Gauge.builder("notification.consumer.paused", this, b -> b.isPaused() ? 1 : 0)
+                .description("1 while user.account consumption is paused by backpressure").register(meterRegistry);
+        FunctionCounter.builder("notification.consumer.pauses", pauses, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("notification.consumer.lag", this,
+                        b -> b.lagByPartition().values().stream().mapToLong(Long::longValue).sum())
+                .description("Records behind the end of user.account, summed over assigned partitions")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.notificationservice.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.KafkaException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Повторная прогонка DLT: события перекладываются обратно во вход цепочки повторов.
+ * Прочитанное отмечается оффсетами отдельной группы, поэтому повторный вызов
+ * продолжит с того места, где остановился предыдущий, а не пошлёт письма второй раз.
+ */
+@Slf4j
+@Service
+public class DltReplayService {
+
+    static final String REPLAY_GROUP = "notification-service-dlt-replay";
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final Duration REPLAY_DEADLINE = Duration.ofSeconds(30);
+
+    private final ConsumerFactory<Object, Object> consumerFactory;
+    private final KafkaTemplate<Object, Object> kafkaTemplate;
+    private final AppKafkaProperties props;
+    private final Counter replayedCounter;
+    // не synchronized: внутри блокирующий I/O Kafka, виртуальный поток на мониторе занял бы carrier
+    private final ReentrantLock replayLock = new ReentrantLock();
+
+    public DltReplayService(ConsumerFactory<Object, Object> consumerFactory,
+                            KafkaTemplate<Object, Object> kafkaTemplate,
+                            AppKafkaProperties props,
+                            MeterRegistry meterRegistry) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaTemplate = kafkaTemplate;
+        this.props = props;
+        this.replayedCounter = Counter.builder("notification.mail.dlt.replayed")
+                .description("Events moved from the DLT back to the retry chain")
+                .register(meterRegistry);
+    }
+
+    /** @return сколько событий переложено (не больше {@code limit}) */
+    public int replay(int limit) {
+        replayLock.lock();
+        try {
+            return doReplay(limit);
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    private int doReplay(int limit) {
+        String dlt = props.getDeadLetterTopic();
+        var overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(Math.min(limit, 500)));
+
+        try (Consumer<Object, Object> consumer = consumerFactory.createConsumer(REPLAY_GROUP, null, null, overrides)) {
+            List<PartitionInfo> infos = consumer.partitionsFor(dlt);
+            if (infos == null || infos.isEmpty()) {
+                return 0;
+            }
+            List<TopicPartition> partitions = infos.stream()
+                    .map(i -> new TopicPartition(i.topic(), i.partition()))
+                    .toList();
+            // assign без подписки: не ждём ребаланса, позиции берутся из коммитов группы
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+
+            Map<TopicPartition, OffsetAndMetadata> done = new HashMap<>();
+            int replayed = 0;
+            long deadline = System.nanoTime() + REPLAY_DEADLINE.toNanos();
+            try {
+                while (replayed < limit && System.nanoTime() < deadline && !caughtUp(consumer, partitions, end)) {
+                    for (ConsumerRecord<Object, Object> record : consumer.poll(POLL_TIMEOUT)) {
+                        if (replayed >= limit) {
+                            break;
+                        }
+                        send(record);
+                        done.put(new TopicPartition(record.topic(), record.partition()),
+                                new OffsetAndMetadata(record.offset() + 1));
+                        replayed++;
+                    }
+                }
+            } finally {
+                // фиксируем даже при ошибке отправки, чтобы уже переложенное не ушло второй раз
+                if (!done.isEmpty()) {
+                    consumer.commitSync(done);
+                }
+                replayedCounter.increment(replayed);
+            }
+            log.info("DLT replay done: topic={}, replayed={}, to={}", dlt, replayed, props.getRetryTopic());
+            return replayed;
+        }
+    }
+
+    private static boolean caughtUp(Consumer<?, ?> consumer, List<TopicPartition> partitions,
+                                    Map<TopicPartition, Long> end) {
+        return partitions.stream().allMatch(tp -> consumer.position(tp) >= end.getOrDefault(tp, 0L));
+    }
+
+    private void send(ConsumerRecord<Object, Object> record) {
+        try {
+            kafkaTemplate.send(props.getRetryTopic(), record.key(), record.value()).get(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("DLT replay interrupted", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new KafkaException("DLT replay failed at offset %d".formatted(record.offset()), e);
+        }
+    }
+}
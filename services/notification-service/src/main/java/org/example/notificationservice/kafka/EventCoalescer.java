@@ -0,0 +1,316 @@
+package org.example.notificationservice.kafka;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.example.notificationservice.config.CoalesceProperties;
+import org.example.notificationservice.events.UserEvent;
+import org.example.notificationservice.mail.MailService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Окно склейки событий по ключу (userId). События пользователя копятся {@code window-ms}
+ * с момента первого, затем:
+ * <ul>
+ *   <li>USER_CREATED, за которым в том же окне идёт USER_DELETED, — пара выбрасывается;</li>
+ *   <li>оставшиеся письма одному адресату склеиваются в одно.</li>
+ * </ul>
+ * Оффсеты подтверждаются вручную и строго по порядку: запись коммитится, только когда
+ * обработаны она и все записи партиции до неё, поэтому буфер не теряется при падении.
+ * При отзыве партиции (ребаланс, остановка) её окна закрываются досрочно и подтверждаются
+ * до коммита — новый владелец не пошлёт эти письма повторно. При потере партиции буфер
+ * просто выбрасывается: записи без коммита получит новый владелец.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.notification.coalesce.enabled", havingValue = "true")
+public class EventCoalescer implements ConsumerAwareRebalanceListener, MeterBinder {
+
+    private final MailService mailService;
+    private final ConsumerRecordRecoverer retryForwarder;
+    private final ExecutorService executor;
+    private final CoalesceProperties props;
+
+    // всё состояние ниже — под монитором this
+    private final Map<TopicPartition, PartitionState> partitions = new HashMap<>();
+    private int buffered;
+    private boolean flushAll;
+
+    private final AtomicLong cancelledPairs = new AtomicLong();
+    private final AtomicLong mergedEvents = new AtomicLong();
+
+    public EventCoalescer(MailService mailService,
+                          ConsumerRecordRecoverer retryForwarder,
+                          @Qualifier("mailDispatchExecutor") ExecutorService executor,
+                          CoalesceProperties props) {
+        this.mailService = mailService;
+        this.retryForwarder = retryForwarder;
+        this.executor = executor;
+        this.props = props;
+    }
+
+    public synchronized void offer(ConsumerRecord<String, UserEvent> record, Acknowledgment ack) {
+        var tp = new TopicPartition(record.topic(), record.partition());
+        PartitionState state = partitions.computeIfAbsent(tp, PartitionState::new);
+        var slot = new Slot(ack);
+        state.slots.put(record.offset(), slot);
+
+        if (!MailService.producesMail(record.value())) {
+            // писем по нему нет — держать незачем, но коммит всё равно по порядку
+            slot.done = true;
+            ackContiguous(state);
+            return;
+        }
+        state.groups.computeIfAbsent(String.valueOf(record.key()),
+                        k -> new Group(state, System.currentTimeMillis() + props.getWindowMs()))
+                .records.add(record);
+        if (++buffered >= props.getMaxBuffered()) {
+            flushAll = true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.notification.coalesce.tick-ms:100}")
+    public void flushDue() {
+        List<Group> due = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (PartitionState state : partitions.values()) {
+                Iterator<Group> it = state.groups.values().iterator();
+                while (it.hasNext()) {
+                    Group group = it.next();
+                    if (flushAll || group.deadline <= now) {
+                        it.remove();
+                        due.add(group);
+                    }
+                }
+            }
+            flushAll = false;
+        }
+        due.forEach(this::dispatch);
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        List<Group> open = new ArrayList<>();
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        synchronized (this) {
+            for (TopicPartition tp : revoked) {
+                PartitionState state = partitions.get(tp);
+                if (state != null) {
+                    open.addAll(state.groups.values());
+                    state.groups.clear();
+                    pending.addAll(state.inFlight);
+                }
+            }
+        }
+        open.forEach(group -> pending.add(dispatch(group)));
+        // ждём без монитора: завершение отправки само берёт его, чтобы подтвердить оффсеты
+        pending.forEach(CompletableFuture::join);
+        synchronized (this) {
+            revoked.forEach(partitions::remove);
+        }
+        if (!open.isEmpty()) {
+            log.info("Coalescing windows flushed on revoke: partitions={}, groups={}", revoked, open.size());
+        }
+    }
+
+    @Override
+    public synchronized void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+        for (TopicPartition tp : lost) {
+            PartitionState state = partitions.remove(tp);
+            if (state != null) {
+                state.groups.values().forEach(g -> buffered -= g.records.size());
+            }
+        }
+    }
+
+    /** Возвращает future, которое завершается уже после подтверждения оффсетов группы. */
+    private CompletableFuture<Void> dispatch(Group group) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        synchronized (this) {
+            group.state.inFlight.add(done);
+        }
+        CompletableFuture.runAsync(() -> process(group), executor).whenComplete((ok, error) -> {
+            try {
+                complete(group, done, error);
+            } finally {
+                done.complete(null);
+            }
+        });
+        return done;
+    }
+
+    private void process(Group group) {
+        Coalesced coalesced = coalesce(group.records.stream().map(ConsumerRecord::value).toList());
+        cancelledPairs.addAndGet(coalesced.cancelledPairs());
+        List<UserEvent> toSend = coalesced.toSend();
+        if (toSend.isEmpty()) {
+            return;
+        }
+        try {
+            mergedEvents.addAndGet(mailService.sendMerged(toSend));
+        } catch (Exception e) {
+            Set<UserEvent> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+            failed.addAll(toSend);
+            for (var record : group.records) {
+                if (failed.contains(record.value())) {
+                    log.warn("Coalesced mail failed, forwarding to retry topic: key={}, offset={}, error={}",
+                            record.key(), record.offset(), e.toString());
+                    retryForwarder.accept(record, e);
+                }
+            }
+        }
+    }
+
+    private synchronized void complete(Group group, CompletableFuture<Void> future, Throwable error) {
+        PartitionState state = group.state;
+        state.inFlight.remove(future);
+        if (partitions.get(state.tp) != state) {
+            return; // партиция потеряна — коммитить уже нечего
+        }
+        if (error != null) {
+            // не удалось даже переложить в retry-топик — попробуем в следующем окне
+            log.error("Coalesced group failed, will retry: key={}, error={}",
+                    group.records.getFirst().key(), error.toString());
+            group.deadline = System.currentTimeMillis() + props.getWindowMs();
+            // за это время могли прийти новые события ключа — они идут после старых
+            state.groups.merge(String.valueOf(group.records.getFirst().key()), group, (newer, failed) -> {
+                failed.records.addAll(newer.records);
+                return failed;
+            });
+            return;
+        }
+        for (var record : group.records) {
+            Slot slot = state.slots.get(record.offset());
+            if (slot != null) {
+                slot.done = true;
+            }
+        }
+        buffered -= group.records.size();
+        ackContiguous(state);
+    }
+
+    /** Подтверждает самую дальнюю запись, до которой все предыдущие уже обработаны. */
+    private void ackContiguous(PartitionState state) {
+        Slot last = null;
+        while (!state.slots.isEmpty() && state.slots.firstEntry().getValue().done) {
+            last = state.slots.pollFirstEntry().getValue();
+        }
+        if (last != null) {
+            last.ack.acknowledge();
+        }
+    }
+
+    record Coalesced(List<UserEvent> toSend, int cancelledPairs) {}
+
+    /**
+     * USER_CREATED, после которого в окне пришёл USER_DELETED, взаимно гасятся; точные
+     * повторы (тот же тип и адрес) схлопываются; порядок остальных сохраняется.
+     */
+    static Coalesced coalesce(List<UserEvent> events) {
+        List<UserEvent> result = new ArrayList<>(events.size());
+        int pairs = 0;
+        for (UserEvent event : events) {
+            if (!MailService.producesMail(event)) {
+                continue;
+            }
+            if (event.getEventType() == UserEvent.Type.USER_DELETED) {
+                int created = lastIndexOf(result, UserEvent.Type.USER_CREATED);
+                if (created >= 0) {
+                    result.remove(created);
+                    pairs++;
+                    continue;
+                }
+            }
+            boolean repeat = !result.isEmpty()
+                    && result.getLast().getEventType() == event.getEventType()
+                    && Objects.equals(result.getLast().getEmail(), event.getEmail());
+            if (!repeat) {
+                result.add(event);
+            }
+        }
+        return new Coalesced(result, pairs);
+    }
+
+    private static int lastIndexOf(List<UserEvent> events, UserEvent.Type type) {
+        for (int i = events.size() - 1; i >= 0; i--) {
+            if (events.get(i).getEventType() == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("notification.coalesce.buffered", this, EventCoalescer::bufferedCount)
+                .description("Events waiting in coalescing windows").register(registry);
+        FunctionCounter.builder("notification.coalesce.cancelled-pairs", cancelledPairs, AtomicLong::get)
+                .description("USER_CREATED + USER_DELETED pairs dropped").register(registry);
+        FunctionCounter.builder("notification.coalesce.merged", mergedEvents, AtomicLong::get)
+                .description("Events folded into another mail to the same recipient").register(registry);
+    }
+
+    synchronized int bufferedCount() {
+        return buffered;
+    }
+
+    private static final class PartitionState {
+        private final TopicPartition tp;
+        private final TreeMap<Long, Slot> slots = new TreeMap<>();
+        private final Map<String, Group> groups = new LinkedHashMap<>();
+        private final Set<CompletableFuture<?>> inFlight = new HashSet<>();
+
+        private PartitionState(TopicPartition tp) {
+            this.tp = tp;
+        }
+    }
+
+    private static final class Slot {
+        private final Acknowledgment ack;
+        private boolean done;
+
+        private Slot(Acknowledgment ack) {
+            this.ack = ack;
+        }
+    }
+
+    private static final class Group {
+        private final PartitionState state;
+        private final List<ConsumerRecord<String, UserEvent>> records = new ArrayList<>();
+        private long deadline;
+
+        private Group(PartitionState state, long deadline) {
+            this.state = state;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.notificationservice.events.UserEvent;
 import org.example.notificationservice.mail.MailService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
@@ -12,11 +13,17 @@ import org.springframework.stereotype.Component;
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@ConditionalOnExpression("!${app.kafka.listener.batch-enabled:false} and !${app.notification.coalesce.enabled:false}"
+        + " and !${app.notification.spool.enabled:false}")
 public class NotificationListener {
 
     private final MailService mailService;
 
-    @KafkaListener(topics = "${app.kafka.user-topic}")
+    /**
+     * Один поток на партицию: события разных пользователей обрабатываются параллельно,
+     * события одного пользователя (ключ = userId) — строго по порядку.
+     */
+    @KafkaListener(topics = "${app.kafka.user-topic}", concurrency = "${app.kafka.listener.concurrency}")
     public void onUserEvent(UserEvent event, @Header(KafkaHeaders.RECEIVED_KEY) String key) {
         log.info("Kafka message received: key={}, eventType={}, email={}",
                 key, event.getEventType(), event.getEmail());
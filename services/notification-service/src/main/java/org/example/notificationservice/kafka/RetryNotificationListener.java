@@ -0,0 +1,64 @@
+package org.example.notificationservice.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.example.notificationservice.events.UserEvent;
+import org.example.notificationservice.mail.MailService;
+import org.springframework.kafka.annotation.DltHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.mail.MailParseException;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.stereotype.Component;
+
+/**
+ * Неблокирующие повторы: события, которые основной листенер не смог отправить, идут по
+ * {@code user.account.mail} → {@code -retry-0..N} → {@code -dlt}. Задержку держит
+ * контейнер retry-топика (пауза партиции), основной топик при этом не стоит.
+ * Невалидный адрес повтором не лечится — такие события сразу уходят в DLT.
+ */
+@Slf4j
+@Component
+public class RetryNotificationListener {
+
+    private final MailService mailService;
+    private final MeterRegistry meterRegistry;
+    private final Counter deadLettered;
+
+    public RetryNotificationListener(MailService mailService, MeterRegistry meterRegistry) {
+        this.mailService = mailService;
+        this.meterRegistry = meterRegistry;
+        this.deadLettered = Counter.builder("notification.mail.dead-lettered")
+                .description("Events that exhausted all retries")
+                .register(meterRegistry);
+    }
+
+    @RetryableTopic(
+            attempts = "${app.kafka.retry.attempts}",
+            backoff = @Backoff(
+                    delayExpression = "${app.kafka.retry.delay-ms}",
+                    multiplierExpression = "${app.kafka.retry.multiplier}",
+                    maxDelayExpression = "${app.kafka.retry.max-delay-ms}"),
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            dltTopicSuffix = AppKafkaProperties.DLT_SUFFIX,
+            exclude = MailParseException.class)
+    @KafkaListener(topics = "${app.kafka.retry-topic}", groupId = "notification-service-retry")
+    public void onRetry(UserEvent event, @Header(KafkaHeaders.RECEIVED_TOPIC) String topic) {
+        meterRegistry.counter("notification.mail.retry.attempts", "topic", topic).increment();
+        log.info("Retrying mail: topic={}, userId={}, eventType={}", topic, event.getUserId(), event.getEventType());
+        mailService.sendFor(event);
+    }
+
+    @DltHandler
+    public void onDeadLetter(UserEvent event,
+                             @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false) String error) {
+        deadLettered.increment();
+        log.error("Mail undeliverable, left in DLT: userId={}, email={}, eventType={}, error={}",
+                event.getUserId(), event.getEmail(), event.getEventType(), error);
+    }
+}
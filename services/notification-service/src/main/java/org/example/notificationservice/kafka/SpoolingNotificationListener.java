@@ -0,0 +1,35 @@
+package org.example.notificationservice.kafka;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.example.notificationservice.config.KafkaConsumerConfig;
+import org.example.notificationservice.events.UserEvent;
+import org.example.notificationservice.mail.MailService;
+import org.example.notificationservice.spool.MailSpool;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Режим спула ({@code app.notification.spool.enabled=true}, если не включена склейка): весь
+ * poll одной записью уходит в журнал на диске, после чего оффсеты коммитятся. Письма шлёт
+ * {@link MailSpool} в фоне.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("${app.notification.spool.enabled:false} and !${app.notification.coalesce.enabled:false}")
+public class SpoolingNotificationListener {
+
+    private final MailSpool spool;
+
+    @KafkaListener(topics = "${app.kafka.user-topic}", concurrency = "${app.kafka.listener.concurrency}",
+            containerFactory = KafkaConsumerConfig.BATCH_FACTORY)
+    public void onUserEvents(List<ConsumerRecord<String, UserEvent>> records) {
+        spool.append(records.stream()
+                .map(ConsumerRecord::value)
+                .filter(MailService::producesMail)
+                .toList());
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.notificationservice.mail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example.notificationservice.config.MailRateLimitProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket на каждый домен получателя. Отправитель ждёт токен своего домена, поэтому
+ * троттлинг одного почтовика задерживает только письма на этот домен, остальные идут
+ * без очереди. Внутри домена токен достаётся первому ожидающему из самой приоритетной
+ * непустой полосы, в полосе — по порядку прихода.
+ * <p>
+ * Лимиты читаются из {@link MailRateLimitProperties} при каждом пополнении, так что
+ * обновление конфигурации с config-server применяется без рестарта.
+ */
+@Slf4j
+@Component
+public class DomainRateLimiter {
+
+    private static final long IDLE_EVICT_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final MailRateLimitProperties props;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final Map<MailPriority, AtomicInteger> waiting = new EnumMap<>(MailPriority.class);
+    private final Map<MailPriority, Timer> waitTimers = new EnumMap<>(MailPriority.class);
+    private final Map<MailPriority, Counter> timeouts = new EnumMap<>(MailPriority.class);
+
+    public DomainRateLimiter(MailRateLimitProperties props, MeterRegistry meterRegistry) {
+        this.props = props;
+        for (MailPriority priority : MailPriority.values()) {
+            String lane = priority.name().toLowerCase(Locale.ROOT);
+            var count = new AtomicInteger();
+            waiting.put(priority, count);
+            Gauge.builder("mail.rate-limit.waiting", count, AtomicInteger::get)
+                    .description("Mails waiting for a recipient-domain token")
+                    .tag("lane", lane).register(meterRegistry);
+            waitTimers.put(priority, Timer.builder("mail.rate-limit.wait")
+                    .description("Time spent waiting for a recipient-domain token")
+                    .tag("lane", lane)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry));
+            timeouts.put(priority, Counter.builder("mail.rate-limit.timeouts")
+                    .tag("lane", lane).register(meterRegistry));
+        }
+    }
+
+    /**
+     * Блокирует, пока для домена адреса {@code to} не найдётся токен.
+     *
+     * @throws MailRateLimitException если токен не получен за {@code max-wait}
+     */
+    public void acquire(String to, MailPriority priority) {
+        if (!props.isEnabled()) {
+            return;
+        }
+        String domain = domainOf(to);
+        long start = System.nanoTime();
+        // пользователь отмечается атомарно с поиском корзины: evictIdle её уже не удалит
+        Bucket bucket = buckets.compute(domain, (d, b) -> (b != null ? b : new Bucket(d)).use());
+        boolean acquired;
+        try {
+            acquired = bucket.acquire(priority, start + props.getMaxWait().toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            bucket.users.decrementAndGet();
+        }
+        waitTimers.get(priority).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            timeouts.get(priority).increment();
+            throw new MailRateLimitException(domain, priority);
+        }
+    }
+
+    /** Забывает давно простаивающие домены: корзина всё равно была бы полной. */
+    @Scheduled(fixedDelay = 60_000)
+    void evictIdle() {
+        long threshold = System.nanoTime() - IDLE_EVICT_NANOS;
+        // computeIfPresent, а не removeIf: проверка и удаление атомарны с compute() в acquire
+        for (String domain : buckets.keySet()) {
+            buckets.computeIfPresent(domain, (d, bucket) -> bucket.isIdleSince(threshold) ? null : bucket);
+        }
+    }
+
+    static String domainOf(String address) {
+        int at = address == null ? -1 : address.lastIndexOf('@');
+        return at < 0 ? "" : address.substring(at + 1).trim().toLowerCase(Locale.ROOT);
+    }
+
+    private final class Bucket {
+        private final String domain;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final Map<MailPriority, ArrayDeque<Thread>> lanes = new EnumMap<>(MailPriority.class);
+        // взявшие корзину в acquire и ещё не вышедшие из него
+        private final AtomicInteger users = new AtomicInteger();
+        private double tokens;
+        private long refilledAt;
+
+        private Bucket(String domain) {
+            this.domain = domain;
+            this.tokens = props.limitFor(domain).getBurst();
+            this.refilledAt = System.nanoTime();
+            for (MailPriority priority : MailPriority.values()) {
+                lanes.put(priority, new ArrayDeque<>());
+            }
+        }
+
+        private Bucket use() {
+            users.incrementAndGet();
+            return this;
+        }
+
+        private boolean acquire(MailPriority priority, long deadline) throws InterruptedException {
+            Thread me = Thread.currentThread();
+            lock.lock();
+            try {
+                lanes.get(priority).addLast(me);
+                waiting.get(priority).incrementAndGet();
+                try {
+                    while (true) {
+                        var limit = props.limitFor(domain);
+                        long now = System.nanoTime();
+                        refill(limit, now);
+                        if (head() == me && tokens >= 1) {
+                            tokens -= 1;
+                            return true;
+                        }
+                        long left = deadline - now;
+                        if (left <= 0) {
+                            return false;
+                        }
+                        // первому в очереди — ровно до следующего токена, остальным — до сигнала
+                        long untilToken = (long) ((1 - tokens) / limit.getPermitsPerSecond() * 1e9);
+                        changed.awaitNanos(head() == me ? Math.min(left, Math.max(untilToken, 1)) : left);
+                    }
+                } finally {
+                    lanes.get(priority).remove(me);
+                    waiting.get(priority).decrementAndGet();
+                    changed.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Thread head() {
+            for (ArrayDeque<Thread> lane : lanes.values()) {
+                if (!lane.isEmpty()) {
+                    return lane.peekFirst();
+                }
+            }
+            return null;
+        }
+
+        private void refill(MailRateLimitProperties.Limit limit, long now) {
+            tokens = Math.min(limit.getBurst(), tokens + (now - refilledAt) / 1e9 * limit.getPermitsPerSecond());
+            refilledAt = now;
+        }
+
+        private boolean isIdleSince(long threshold) {
+            lock.lock();
+            try {
+                return users.get() == 0 && refilledAt < threshold
+                        && lanes.values().stream().allMatch(ArrayDeque::isEmpty);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
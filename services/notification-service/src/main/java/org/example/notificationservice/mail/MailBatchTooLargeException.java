@@ -0,0 +1,8 @@
+package org.example.notificationservice.mail;
+
+/** Пачка больше всей очереди ручной отправки — места не будет никогда, повторять бессмысленно. */
+public class MailBatchTooLargeException extends RuntimeException {
+    public MailBatchTooLargeException(int requested, int capacity) {
+        super("Mail batch exceeds queue capacity: requested=%d, capacity=%d".formatted(requested, capacity));
+    }
+}
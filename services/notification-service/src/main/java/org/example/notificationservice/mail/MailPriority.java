@@ -0,0 +1,17 @@
+package org.example.notificationservice.mail;
+
+import org.example.notificationservice.events.UserEvent;
+
+/** Полоса отправки: транзакционные письма получают токены домена раньше массовых. */
+public enum MailPriority {
+    TRANSACTIONAL,
+    BULK;
+
+    public static final String MANUAL_SOURCE = "manual";
+
+    public static MailPriority of(UserEvent event) {
+        return event.getEventType() == UserEvent.Type.USER_CREATED && !MANUAL_SOURCE.equals(event.getSource())
+                ? TRANSACTIONAL
+                : BULK;
+    }
+}
@@ -0,0 +1,8 @@
+package org.example.notificationservice.mail;
+
+/** Очередь ручной отправки заполнена — клиенту стоит повторить позже. */
+public class MailQueueFullException extends RuntimeException {
+    public MailQueueFullException(int requested, int capacity) {
+        super("Mail queue is full: requested=%d, capacity=%d".formatted(requested, capacity));
+    }
+}
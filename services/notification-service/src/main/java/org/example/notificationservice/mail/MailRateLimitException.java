@@ -0,0 +1,10 @@
+package org.example.notificationservice.mail;
+
+import org.springframework.mail.MailException;
+
+/** Токен домена не освободился за {@code max-wait}; письмо не отправлялось. */
+public class MailRateLimitException extends MailException {
+    public MailRateLimitException(String domain, MailPriority priority) {
+        super("Rate limit wait exceeded: domain=%s, priority=%s".formatted(domain, priority));
+    }
+}
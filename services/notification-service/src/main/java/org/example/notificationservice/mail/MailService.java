@@ -1,47 +1,263 @@
 package org.example.notificationservice.mail;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.notificationservice.dedup.EventDeduplicator;
 import org.example.notificationservice.events.UserEvent;
-import org.springframework.mail.SimpleMailMessage;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class MailService {
+public class MailService implements MeterBinder {
 
     private final JavaMailSender mailSender;
+    private final EventDeduplicator deduplicator;
+    private final DomainRateLimiter rateLimiter;
+    private final MailTemplates templates;
+
+    // письма, которые ждут токен домена или уже отправляются
+    private final AtomicInteger inFlight = new AtomicInteger();
 
     public void sendFor(UserEvent event) {
-        String subject;
-        String text;
+        if (deduplicator.isDuplicate(event.getEventId())) {
+            log.info("Duplicate event skipped: eventId={}, eventType={}", event.getEventId(), event.getEventType());
+            return;
+        }
+        RenderedMail mail = toMail(event);
+        if (mail != null) {
+            send(mail, MailPriority.of(event));
+            deduplicator.markDelivered(event.getEventId());
+        }
+    }
+
+    /**
+     * Отправляет письма по пачке событий. Письма группируются по домену получателя: группы
+     * ждут токены своих доменов параллельно, и каждая уходит одним вызовом JavaMailSender,
+     * как только получила токены, — троттлинг одного домена не задерживает письма на другие.
+     * Внутри домена порядок отправки совпадает с порядком событий. Уже отправленные ранее
+     * события и повторы eventId внутри пачки пропускаются. Письмо, не дождавшееся токена,
+     * и все следующие письма на тот же домен считаются неудачными.
+     *
+     * @return события, письма по которым отправить не удалось (ключи сравниваются по ссылке)
+     */
+    public Map<UserEvent, Exception> sendAllFor(List<UserEvent> events) {
+        inFlight.addAndGet(events.size());
+        try {
+            return doSendAllFor(events);
+        } finally {
+            inFlight.addAndGet(-events.size());
+        }
+    }
+
+    private record Outgoing(UserEvent event, MimeMessage message) {}
 
-        switch(event.getEventType()) {
-            case USER_CREATED -> {
-                subject = "Аккаунт создан";
-                text = "Здравствуйте! Ваш аккаунт на сайте был успешно создан.";
+    private Map<UserEvent, Exception> doSendAllFor(List<UserEvent> events) {
+        Map<String, List<Outgoing>> byDomain = new LinkedHashMap<>();
+        Set<String> batchIds = new HashSet<>();
+        Map<UserEvent, Exception> failed = new IdentityHashMap<>();
+        int duplicates = 0;
+        int total = 0;
+        for (UserEvent event : events) {
+            String eventId = event.getEventId();
+            if ((eventId != null && !batchIds.add(eventId)) || deduplicator.isDuplicate(eventId)) {
+                duplicates++;
+                continue;
             }
-            case USER_DELETED -> {
-                subject = "Аккаунт удалён";
-                text = "Здравствуйте! Ваш аккаунт был удалён";
+            RenderedMail mail = toMail(event);
+            if (mail == null) {
+                continue;
             }
-            default -> {
-                log.warn("Unknown event type: {}", event.getEventType());
-                return;
+            try {
+                byDomain.computeIfAbsent(DomainRateLimiter.domainOf(event.getEmail()), d -> new ArrayList<>())
+                        .add(new Outgoing(event, toMime(mail)));
+                total++;
+            } catch (MailParseException e) {
+                failed.put(event, e);
             }
         }
+        if (byDomain.isEmpty()) {
+            return failed;
+        }
 
-        sendPlain(event.getEmail(), subject, text);
+        if (byDomain.size() == 1) {
+            failed.putAll(sendDomain(byDomain.values().iterator().next()));
+        } else {
+            try (var perDomain = Executors.newVirtualThreadPerTaskExecutor()) {
+                var sends = byDomain.values().stream()
+                        .map(group -> CompletableFuture.supplyAsync(() -> sendDomain(group), perDomain))
+                        .toList();
+                sends.forEach(send -> failed.putAll(send.join()));
+            }
+        }
+        log.info("Mail batch sent: total={}, domains={}, failed={}, duplicatesSkipped={}",
+                total, byDomain.size(), failed.size(), duplicates);
+        return failed;
+    }
+
+    // письма одного домена: токены по порядку, затем одна отправка
+    private Map<UserEvent, Exception> sendDomain(List<Outgoing> group) {
+        Map<UserEvent, Exception> failed = new IdentityHashMap<>();
+        Map<MimeMessage, UserEvent> byMessage = new IdentityHashMap<>();
+        for (int i = 0; i < group.size(); i++) {
+            Outgoing out = group.get(i);
+            try {
+                rateLimiter.acquire(out.event().getEmail(), MailPriority.of(out.event()));
+            } catch (MailRateLimitException e) {
+                // домен троттлит: остальные письма на него ждали бы по max-wait каждое, сразу в повтор
+                group.subList(i, group.size()).forEach(rest -> failed.put(rest.event(), e));
+                break;
+            }
+            byMessage.put(out.message(), out.event());
+        }
+        if (byMessage.isEmpty()) {
+            return failed;
+        }
+
+        try {
+            mailSender.send(group.stream()
+                    .map(Outgoing::message)
+                    .filter(byMessage::containsKey)
+                    .toArray(MimeMessage[]::new));
+        } catch (MailSendException e) {
+            int throttled = failed.size();
+            e.getFailedMessages().forEach((msg, ex) -> {
+                UserEvent event = byMessage.get(msg);
+                if (event != null) {
+                    failed.put(event, ex);
+                }
+            });
+            if (failed.size() == throttled) {
+                byMessage.values().forEach(event -> failed.put(event, e));
+            }
+        } catch (MailException e) {
+            byMessage.values().forEach(event -> failed.put(event, e));
+        }
+        byMessage.values().stream()
+                .filter(event -> !failed.containsKey(event))
+                .forEach(event -> deduplicator.markDelivered(event.getEventId()));
+        return failed;
+    }
+
+    /**
+     * Письма по уже склеенным событиям одного пользователя: по одному на адресата, несколько
+     * уведомлений одному адресату уходят одним письмом.
+     *
+     * @return сколько событий ушло «внутри» чужого письма (не считая первого на адресата)
+     */
+    public int sendMerged(List<UserEvent> events) {
+        Map<String, List<UserEvent>> byRecipient = new LinkedHashMap<>();
+        for (UserEvent event : events) {
+            if (!deduplicator.isDuplicate(event.getEventId()) && producesMail(event)) {
+                byRecipient.computeIfAbsent(event.getEmail(), e -> new ArrayList<>()).add(event);
+            }
+        }
+        int merged = 0;
+        for (var entry : byRecipient.entrySet()) {
+            List<UserEvent> recipientEvents = entry.getValue();
+            MailPriority priority = recipientEvents.stream()
+                    .map(MailPriority::of)
+                    .min(Comparator.naturalOrder())
+                    .orElseThrow();
+            List<RenderedMail> parts = recipientEvents.stream().map(this::toMail).filter(Objects::nonNull).toList();
+            if (parts.size() == 1) {
+                send(parts.getFirst(), priority);
+            } else if (parts.size() > 1) {
+                send(templates.digest(entry.getKey(), recipientEvents.getFirst().getLocale(), parts), priority);
+                merged += parts.size() - 1;
+            }
+            recipientEvents.forEach(e -> deduplicator.markDelivered(e.getEventId()));
+        }
+        return merged;
+    }
+
+    /** Будет ли по событию письмо (USER_UPDATED, например, нужен только кэшам userdb-api). */
+    public static boolean producesMail(UserEvent event) {
+        return event.getEventType() == UserEvent.Type.USER_CREATED
+                || event.getEventType() == UserEvent.Type.USER_DELETED;
     }
 
     public void sendPlain(String to, String subject, String text) {
-        var msg = new SimpleMailMessage();
-        msg.setTo(to);
-        msg.setSubject(subject);
-        msg.setText(text);
-        mailSender.send(msg);
-        log.info("Mail sent: to={}, subject={}", to, subject);
+        sendPlain(to, subject, text, MailPriority.BULK);
+    }
+
+    public void sendPlain(String to, String subject, String text, MailPriority priority) {
+        send(new RenderedMail(to, subject, text, null), priority);
+    }
+
+    private void send(RenderedMail mail, MailPriority priority) {
+        MimeMessage msg = toMime(mail);
+        inFlight.incrementAndGet();
+        try {
+            rateLimiter.acquire(mail.to(), priority);
+            mailSender.send(msg);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        log.info("Mail sent: to={}, subject={}", mail.to(), mail.subject());
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("notification.mail.in-flight", inFlight, AtomicInteger::get)
+                .description("Mails waiting for a domain token or being sent").register(registry);
+    }
+
+    private RenderedMail toMail(UserEvent event) {
+        if (!producesMail(event)) {
+            // USER_UPDATED нужен для инвалидации кэшей userdb-api, писем по нему не шлём
+            log.debug("No mail for event type: {}", event.getEventType());
+            return null;
+        }
+        RenderedMail mail = templates.render(event);
+        if (mail == null) {
+            log.warn("No mail template for event type: {}", event.getEventType());
+        }
+        return mail;
+    }
+
+    // text + html уходят как multipart/alternative; битый адрес — MailParseException, повторять бессмысленно
+    private MimeMessage toMime(RenderedMail mail) {
+        try {
+            MimeMessage msg = mailSender.createMimeMessage();
+            var helper = new MimeMessageHelper(msg, mail.html() != null, "UTF-8");
+            helper.setTo(mail.to());
+            helper.setSubject(mail.subject());
+            if (mail.html() != null) {
+                helper.setText(mail.text(), mail.html());
+            } else {
+                helper.setText(mail.text());
+            }
+            return msg;
+        } catch (MessagingException e) {
+            throw new MailParseException(e);
+        }
     }
 }
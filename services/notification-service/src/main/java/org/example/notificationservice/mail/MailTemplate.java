@@ -0,0 +1,107 @@
+package org.example.notificationservice.mail;
+
+import org.example.notificationservice.events.UserEvent;
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Шаблон, один раз разобранный в последовательность частей: готовые литералы и ссылки на
+ * поля события. Рендер — один проход с заранее известной длиной литералов, без разбора
+ * строки, рефлексии и поиска по Map. Шаблон без переменных отдаётся готовой строкой.
+ */
+public final class MailTemplate {
+
+    /** Переменные шаблона; неизвестное имя — ошибка при компиляции, а не пустое место в письме. */
+    enum Var {
+        EMAIL, USER_ID, EVENT_ID, OCCURRED_AT;
+
+        static Var byName(String name) {
+            return switch (name) {
+                case "email" -> EMAIL;
+                case "userId" -> USER_ID;
+                case "eventId" -> EVENT_ID;
+                case "occurredAt" -> OCCURRED_AT;
+                default -> throw new IllegalArgumentException("Unknown template variable: {{%s}}".formatted(name));
+            };
+        }
+
+        String valueOf(UserEvent event) {
+            Object value = switch (this) {
+                case EMAIL -> event.getEmail();
+                case USER_ID -> event.getUserId();
+                case EVENT_ID -> event.getEventId();
+                case OCCURRED_AT -> event.getOccurredAt();
+            };
+            return value == null ? "" : value.toString();
+        }
+    }
+
+    private sealed interface Part permits Literal, Variable {}
+
+    private record Literal(String text) implements Part {}
+
+    private record Variable(Var var, boolean escapeHtml) implements Part {}
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    private final Part[] parts;
+    private final int literalLength;
+    private final String staticText;
+
+    private MailTemplate(List<Part> parts) {
+        this.parts = parts.toArray(Part[]::new);
+        this.literalLength = parts.stream().mapToInt(p -> p instanceof Literal l ? l.text().length() : 0).sum();
+        this.staticText = parts.size() == 1 && parts.getFirst() instanceof Literal l ? l.text()
+                : parts.isEmpty() ? "" : null;
+    }
+
+    /** @param html экранировать подставляемые значения как HTML */
+    public static MailTemplate compile(String source, boolean html) {
+        List<Part> parts = new ArrayList<>();
+        var literal = new StringBuilder();
+        int pos = 0;
+        while (pos < source.length()) {
+            int open = source.indexOf(OPEN, pos);
+            if (open < 0) {
+                literal.append(source, pos, source.length());
+                break;
+            }
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed {{ at offset " + open);
+            }
+            literal.append(source, pos, open);
+            if (!literal.isEmpty()) {
+                parts.add(new Literal(literal.toString()));
+                literal.setLength(0);
+            }
+            String name = source.substring(open + OPEN.length(), close).strip();
+            parts.add(new Variable(Var.byName(name), html));
+            pos = close + CLOSE.length();
+        }
+        if (!literal.isEmpty()) {
+            parts.add(new Literal(literal.toString()));
+        }
+        return new MailTemplate(parts);
+    }
+
+    public String render(UserEvent event) {
+        if (staticText != null) {
+            return staticText;
+        }
+        var out = new StringBuilder(literalLength + 32 * (parts.length / 2 + 1));
+        for (Part part : parts) {
+            switch (part) {
+                case Literal l -> out.append(l.text());
+                case Variable v -> {
+                    String value = v.var().valueOf(event);
+                    out.append(v.escapeHtml() ? HtmlUtils.htmlEscape(value, "UTF-8") : value);
+                }
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.notificationservice.mail;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.notificationservice.config.MailTemplateProperties;
+import org.example.notificationservice.events.UserEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Шаблоны писем из {@code app.mail.templates} (classpath или config-server), скомпилированные
+ * один раз. После обновления конфигурации (refresh перепривязывает свойства новыми
+ * объектами) набор перекомпилируется при следующем письме. Локаль выбирается так: точный
+ * тег события, затем его язык, затем {@code default-locale}.
+ */
+@Slf4j
+@Component
+public class MailTemplates {
+
+    public static final String DIGEST = "DIGEST";
+
+    private static final String TEXT_SEPARATOR = "\n\n";
+    private static final String HTML_SEPARATOR = "\n<hr>\n";
+
+    private record Compiled(MailTemplate subject, MailTemplate text, MailTemplate html) {}
+
+    private record Snapshot(Map<String, Map<String, MailTemplateProperties.Template>> source,
+                            String defaultLocale,
+                            Map<String, Map<String, Compiled>> templates) {}
+
+    private final MailTemplateProperties props;
+    private volatile Snapshot snapshot;
+
+    public MailTemplates(MailTemplateProperties props) {
+        this.props = props;
+        this.snapshot = compile();
+    }
+
+    /** Письмо по событию; null, если для его типа шаблона нет. */
+    public RenderedMail render(UserEvent event) {
+        Compiled t = resolve(event.getEventType().name(), event.getLocale());
+        if (t == null) {
+            return null;
+        }
+        return new RenderedMail(event.getEmail(), t.subject().render(event), t.text().render(event),
+                t.html() == null ? null : t.html().render(event));
+    }
+
+    /** Одно письмо из нескольких уведомлений одному адресату. */
+    public RenderedMail digest(String to, String locale, List<RenderedMail> parts) {
+        Compiled t = resolve(DIGEST, locale);
+        String subject = t != null
+                ? t.subject().render(UserEvent.builder().email(to).build())
+                : parts.getFirst().subject();
+        String text = parts.stream().map(RenderedMail::text).collect(Collectors.joining(TEXT_SEPARATOR));
+        String html = parts.stream().allMatch(p -> p.html() != null)
+                ? parts.stream().map(RenderedMail::html).collect(Collectors.joining(HTML_SEPARATOR))
+                : null;
+        return new RenderedMail(to, subject, text, html);
+    }
+
+    private Compiled resolve(String type, String locale) {
+        Snapshot s = current();
+        Map<String, Compiled> byLocale = s.templates().get(type);
+        if (byLocale == null) {
+            return null;
+        }
+        if (locale != null) {
+            String tag = locale.replace('_', '-').toLowerCase(Locale.ROOT);
+            Compiled exact = byLocale.get(tag);
+            if (exact != null) {
+                return exact;
+            }
+            int dash = tag.indexOf('-');
+            Compiled language = dash > 0 ? byLocale.get(tag.substring(0, dash)) : null;
+            if (language != null) {
+                return language;
+            }
+        }
+        Compiled fallback = byLocale.get(s.defaultLocale());
+        return fallback != null ? fallback : byLocale.values().iterator().next();
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s.source() != props.getMessages()) {
+            synchronized (this) {
+                s = snapshot;
+                if (s.source() != props.getMessages()) {
+                    try {
+                        s = compile();
+                    } catch (IllegalStateException e) {
+                        // битый шаблон из config-server не должен ломать отправку: работаем на прежних
+                        log.error("Mail templates not updated: {}", e.getMessage());
+                        s = new Snapshot(props.getMessages(), s.defaultLocale(), s.templates());
+                    }
+                    snapshot = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    private Snapshot compile() {
+        var source = props.getMessages();
+        Map<String, Map<String, Compiled>> templates = new HashMap<>();
+        source.forEach((type, byLocale) -> {
+            Map<String, Compiled> compiled = new HashMap<>();
+            byLocale.forEach((locale, t) -> {
+                try {
+                    compiled.put(locale.replace('_', '-').toLowerCase(Locale.ROOT), new Compiled(
+                            MailTemplate.compile(t.getSubject(), false),
+                            MailTemplate.compile(t.getText() == null ? "" : t.getText(), false),
+                            t.getHtml() == null ? null : MailTemplate.compile(t.getHtml(), true)));
+                } catch (RuntimeException e) {
+                    throw new IllegalStateException(
+                            "Bad mail template %s/%s: %s".formatted(type, locale, e.getMessage()), e);
+                }
+            });
+            if (!compiled.isEmpty()) {
+                templates.put(type, Map.copyOf(compiled));
+            }
+        });
+        log.info("Mail templates compiled: {}", templates.entrySet().stream()
+                .map(e -> e.getKey() + e.getValue().keySet())
+                .sorted()
+                .collect(Collectors.joining(", ")));
+        return new Snapshot(source, props.getDefaultLocale().toLowerCase(Locale.ROOT), Map.copyOf(templates));
+    }
+}
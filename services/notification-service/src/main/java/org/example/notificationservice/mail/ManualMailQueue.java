@@ -0,0 +1,154 @@
+package org.example.notificationservice.mail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.example.notificationservice.config.ManualMailProperties;
+import org.example.notificationservice.events.UserEvent;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограниченная очередь писем ручной отправки. Контроллер только кладёт в неё и сразу
+ * отвечает 202, письма шлют фоновые потоки — медленный SMTP больше не держит потоки Tomcat.
+ * Места выдаются семафором, поэтому пачка принимается целиком или не принимается вовсе.
+ * Неудачная отправка перекладывается во вход цепочки повторов, как и письма из Kafka.
+ */
+@Slf4j
+@Component
+public class ManualMailQueue {
+
+    private final MailService mailService;
+    private final KafkaTemplate<Object, Object> kafkaTemplate;
+    private final AppKafkaProperties kafkaProps;
+    private final ManualMailProperties props;
+
+    private final BlockingQueue<Job> queue = new LinkedBlockingQueue<>();
+    private final Semaphore slots;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+
+    public ManualMailQueue(MailService mailService,
+                           KafkaTemplate<Object, Object> kafkaTemplate,
+                           AppKafkaProperties kafkaProps,
+                           ManualMailProperties props,
+                           MeterRegistry meterRegistry) {
+        this.mailService = mailService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.kafkaProps = kafkaProps;
+        this.props = props;
+        this.slots = new Semaphore(props.getQueueCapacity());
+
+        Gauge.builder("mail.manual.queue.depth", queue, BlockingQueue::size)
+                .description("Manual mails waiting to be sent").register(meterRegistry);
+        Gauge.builder("mail.manual.queue.capacity", props, ManualMailProperties::getQueueCapacity)
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("mail.manual.queue.wait")
+                .description("Time a manual mail spent in the queue before sending")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("mail.manual.rejected")
+                .description("Manual mails rejected because the queue was full").register(meterRegistry);
+        this.sentCounter = Counter.builder("mail.manual.sent").register(meterRegistry);
+        this.failedCounter = Counter.builder("mail.manual.failed")
+                .description("Manual mails forwarded to the retry topic").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        for (int i = 0; i < props.getWorkers(); i++) {
+            workers.add(Thread.ofVirtual().name("manual-mail-", i).start(this::work));
+        }
+    }
+
+    /**
+     * Ставит письма в очередь: все или ни одного.
+     *
+     * @throws MailBatchTooLargeException если пачка больше всей очереди
+     * @throws MailQueueFullException если места для всей пачки не нашлось за {@code offer-timeout}
+     */
+    public void enqueue(List<UserEvent> events) {
+        int n = events.size();
+        // такой tryAcquire не удастся никогда, а 429 звал бы клиента повторять вечно
+        if (n > props.getQueueCapacity()) {
+            throw new MailBatchTooLargeException(n, props.getQueueCapacity());
+        }
+        boolean acquired;
+        try {
+            acquired = running && slots.tryAcquire(n, props.getOfferTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejectedCounter.increment(n);
+            throw new MailQueueFullException(n, props.getQueueCapacity());
+        }
+        long now = System.nanoTime();
+        events.forEach(event -> queue.add(new Job(event, now)));
+    }
+
+    private void work() {
+        while (running || !queue.isEmpty()) {
+            Job job;
+            try {
+                job = queue.poll(500, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (job != null) {
+                slots.release();
+                send(job);
+            }
+        }
+    }
+
+    private void send(Job job) {
+        waitTimer.record(System.nanoTime() - job.enqueuedAt(), TimeUnit.NANOSECONDS);
+        UserEvent event = job.event();
+        try {
+            mailService.sendFor(event);
+            sentCounter.increment();
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.warn("Manual mail failed, forwarding to retry topic: to={}, error={}", event.getEmail(), e.toString());
+            try {
+                kafkaTemplate.send(kafkaProps.getRetryTopic(), event.key(), event);
+            } catch (Exception sendError) {
+                log.error("Manual mail lost: to={}, eventType={}", event.getEmail(), event.getEventType(), sendError);
+            }
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + props.getDrainTimeout().toNanos();
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        workers.forEach(Thread::interrupt);
+        if (!queue.isEmpty()) {
+            log.warn("Manual mail queue stopped with {} undelivered mails", queue.size());
+        }
+    }
+
+    private record Job(UserEvent event, long enqueuedAt) {}
+}
@@ -0,0 +1,292 @@
+package org.example.notificationservice.mail;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.example.notificationservice.config.MailPoolProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link JavaMailSenderImpl}, который не открывает SMTP-соединение на каждую отправку,
+ * а берёт уже подключённый {@link Transport} из пула. Пачка писем в одном вызове
+ * {@code send(...)} уходит через одно соединение.
+ * <p>
+ * Соединение выбрасывается из пула, если: не ответило на NOOP при выдаче, простаивало
+ * дольше {@code idle-timeout}, отправило {@code max-messages-per-connection} писем или
+ * упало на отправке не из-за отказа по адресату.
+ */
+@Slf4j
+public class PooledJavaMailSender extends JavaMailSenderImpl implements MeterBinder, DisposableBean {
+
+    private final GenericObjectPool<PooledTransport> pool;
+    private final int maxMessagesPerConnection;
+    // null — отправка всегда идёт в вызывающем потоке
+    private final ThreadPoolExecutor smtpExecutor;
+    private final AtomicLong messagesSent = new AtomicLong();
+
+    public PooledJavaMailSender(MailPoolProperties props) {
+        this.maxMessagesPerConnection = props.getMaxMessagesPerConnection();
+
+        var config = new GenericObjectPoolConfig<PooledTransport>();
+        config.setMaxTotal(props.getMaxTotal());
+        config.setMaxIdle(props.getMaxTotal());
+        config.setMinIdle(0);
+        config.setMaxWait(props.getMaxWait());
+        config.setTestOnBorrow(props.isTestOnBorrow());
+        config.setTestWhileIdle(true);
+        config.setMinEvictableIdleDuration(props.getIdleTimeout());
+        config.setTimeBetweenEvictionRuns(props.getEvictionInterval());
+        // LIFO: горячие соединения переиспользуются, лишние остывают и вычищаются evictor'ом
+        config.setLifo(true);
+        config.setJmxEnabled(false);
+        this.pool = new GenericObjectPool<>(new TransportFactory(), config);
+
+        if (props.isOffloadVirtualThreads()) {
+            // потоков не больше, чем соединений: лишним всё равно пришлось бы ждать пул
+            this.smtpExecutor = new ThreadPoolExecutor(props.getMaxTotal(), props.getMaxTotal(),
+                    1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+                    Thread.ofPlatform().name("smtp-", 0).daemon().factory());
+            this.smtpExecutor.allowCoreThreadTimeOut(true);
+        } else {
+            this.smtpExecutor = null;
+        }
+    }
+
+    /**
+     * Каждое письмо пачки конвертируется отдельно: битый адрес в одном не роняет всю пачку,
+     * а попадает в {@link MailSendException#getFailedMessages()} вместе с ошибками отправки.
+     */
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) throws MailException {
+        if (simpleMessages.length == 1) {
+            // одиночное письмо — исключения как у обычного JavaMailSenderImpl (MailParseException и т.п.)
+            super.send(simpleMessages);
+            return;
+        }
+        Map<Object, Exception> failed = new LinkedHashMap<>();
+        List<MimeMessage> mimeMessages = new ArrayList<>(simpleMessages.length);
+        List<Object> originals = new ArrayList<>(simpleMessages.length);
+        for (SimpleMailMessage simpleMessage : simpleMessages) {
+            try {
+                var message = new MimeMailMessage(createMimeMessage());
+                simpleMessage.copyTo(message);
+                mimeMessages.add(message.getMimeMessage());
+                originals.add(simpleMessage);
+            } catch (MailException e) {
+                failed.put(simpleMessage, e);
+            }
+        }
+        try {
+            if (!mimeMessages.isEmpty()) {
+                doSend(mimeMessages.toArray(MimeMessage[]::new), originals.toArray());
+            }
+        } catch (MailSendException e) {
+            failed.putAll(e.getFailedMessages());
+        }
+        if (!failed.isEmpty()) {
+            throw new MailSendException(failed);
+        }
+    }
+
+    /**
+     * Виртуальный поток только ждёт результат: методы SMTPTransport synchronized, и блокировка
+     * на сокете внутри них закрепила бы поток за carrier'ом (pinning). Платформенный поток
+     * вызывающего отправляет сам.
+     */
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        if (smtpExecutor == null || !Thread.currentThread().isVirtual()) {
+            sendPooled(mimeMessages, originalMessages);
+            return;
+        }
+        Future<?> result = smtpExecutor.submit(() -> sendPooled(mimeMessages, originalMessages));
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    result.get();
+                    return;
+                } catch (InterruptedException e) {
+                    // письмо уже может уходить: дожидаемся исхода, чтобы не отправить его повторно
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof MailException mailException) {
+                        throw mailException;
+                    }
+                    throw new MailSendException("SMTP send failed", e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void sendPooled(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) {
+        Map<Object, Exception> failed = new LinkedHashMap<>();
+        PooledTransport transport = null;
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                Object original = originalMessages != null ? originalMessages[i] : mimeMessages[i];
+                if (transport == null) {
+                    try {
+                        transport = pool.borrowObject();
+                    } catch (Exception e) {
+                        // соединиться не удалось — остаток пачки считаем неотправленным
+                        for (int j = i; j < mimeMessages.length; j++) {
+                            failed.put(originalMessages != null ? originalMessages[j] : mimeMessages[j], e);
+                        }
+                        break;
+                    }
+                }
+                try {
+                    transport.send(mimeMessages[i]);
+                    messagesSent.incrementAndGet();
+                } catch (SendFailedException e) {
+                    // сервер отверг адресата, само соединение живо
+                    failed.put(original, e);
+                } catch (Exception e) {
+                    failed.put(original, e);
+                    invalidate(transport);
+                    transport = null;
+                    continue;
+                }
+                if (transport.sent >= maxMessagesPerConnection) {
+                    invalidate(transport);
+                    transport = null;
+                }
+            }
+        } finally {
+            if (transport != null) {
+                pool.returnObject(transport);
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new MailSendException(failed);
+        }
+    }
+
+    private void invalidate(PooledTransport transport) {
+        try {
+            pool.invalidateObject(transport);
+        } catch (Exception e) {
+            log.debug("Failed to invalidate SMTP connection: {}", e.toString());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("mail.smtp.pool.active", pool, GenericObjectPool::getNumActive)
+                .description("SMTP connections in use").register(registry);
+        Gauge.builder("mail.smtp.pool.idle", pool, GenericObjectPool::getNumIdle)
+                .description("Connected SMTP connections waiting in the pool").register(registry);
+        Gauge.builder("mail.smtp.pool.waiters", pool, GenericObjectPool::getNumWaiters)
+                .description("Threads waiting for a free SMTP connection").register(registry);
+        Gauge.builder("mail.smtp.pool.borrow.wait.max", pool, p -> p.getMaxBorrowWaitDuration().toMillis())
+                .baseUnit("milliseconds").register(registry);
+        FunctionCounter.builder("mail.smtp.pool.connections.created", pool, GenericObjectPool::getCreatedCount)
+                .description("SMTP handshakes performed").register(registry);
+        FunctionCounter.builder("mail.smtp.pool.connections.destroyed", pool, GenericObjectPool::getDestroyedCount)
+                .register(registry);
+        FunctionCounter.builder("mail.smtp.pool.messages.sent", messagesSent, AtomicLong::get)
+                .register(registry);
+    }
+
+    /** Сколько SMTP-соединений было открыто за время жизни пула. */
+    public long getConnectionsCreated() {
+        return pool.getCreatedCount();
+    }
+
+    @Override
+    public void destroy() {
+        if (smtpExecutor != null) {
+            smtpExecutor.close();
+        }
+        pool.close();
+    }
+
+    private final class TransportFactory extends BasePooledObjectFactory<PooledTransport> {
+
+        @Override
+        public PooledTransport create() throws MessagingException {
+            Transport transport = connectTransport();
+            log.debug("SMTP connection opened: {}:{}", getHost(), getPort());
+            return new PooledTransport(transport);
+        }
+
+        @Override
+        public PooledObject<PooledTransport> wrap(PooledTransport transport) {
+            return new DefaultPooledObject<>(transport);
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<PooledTransport> p) {
+            // SMTPTransport.isConnected() шлёт NOOP
+            return p.getObject().transport.isConnected();
+        }
+
+        @Override
+        public void destroyObject(PooledObject<PooledTransport> p) {
+            try {
+                p.getObject().transport.close();
+            } catch (MessagingException e) {
+                log.debug("Failed to close SMTP connection: {}", e.toString());
+            }
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private int sent;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        private void send(MimeMessage message) throws MessagingException {
+            // то же, что делает JavaMailSenderImpl перед отправкой
+            if (message.getSentDate() == null) {
+                message.setSentDate(new Date());
+            }
+            String messageId = message.getMessageID();
+            message.saveChanges();
+            if (messageId != null) {
+                message.setHeader("Message-ID", messageId);
+            }
+            Address[] addresses = message.getAllRecipients();
+            transport.sendMessage(message, addresses != null ? addresses : new Address[0]);
+            sent++;
+        }
+    }
+}
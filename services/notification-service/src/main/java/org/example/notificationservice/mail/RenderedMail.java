@@ -0,0 +1,4 @@
+package org.example.notificationservice.mail;
+
+/** Готовое письмо; {@code html == null} — только текст. */
+public record RenderedMail(String to, String subject, String text, String html) {}
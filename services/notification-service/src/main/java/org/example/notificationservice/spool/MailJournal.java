@@ -0,0 +1,330 @@
+package org.example.notificationservice.spool;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only журнал на файлах, отображённых в память. Журнал режется на сегменты
+ * {@code <первый seq>.seg} фиксированного размера. Запись в сегменте:
+ * {@code [int длина][int crc32c][long seq][payload]}. Нулевая длина или битый crc означают
+ * конец данных, поэтому недописанный при падении хвост просто отбрасывается.
+ * <p>
+ * Номера записей (seq) идут подряд с 1. Файл {@code checkpoint} хранит seq, до которого
+ * включительно всё обработано. При открытии чтение начинается со следующего, а
+ * сегменты целиком до checkpoint удаляются.
+ */
+@Slf4j
+final class MailJournal implements Closeable {
+
+    static final int HEADER_BYTES = 4 + 4 + 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean fsync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment head;
+    private long nextSeq;
+
+    private Segment readSegment;
+    private int readPos;
+    private long readSeq;
+
+    private long checkpoint;
+
+    record Entry(long seq, byte[] payload) {}
+
+    private MailJournal(Path dir, int segmentBytes, boolean fsync) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+    }
+
+    static MailJournal open(Path dir, int segmentBytes, boolean fsync) throws IOException {
+        Files.createDirectories(dir);
+        var journal = new MailJournal(dir, segmentBytes, fsync);
+        journal.recover();
+        return journal;
+    }
+
+    private void recover() throws IOException {
+        Path cp = dir.resolve(CHECKPOINT_FILE);
+        checkpoint = Files.exists(cp) ? Long.parseLong(Files.readString(cp).trim()) : 0;
+
+        List<Long> bases = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> bases.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        bases.sort(null);
+        nextSeq = checkpoint + 1;
+        for (long base : bases) {
+            Segment segment = Segment.map(segmentPath(base), base, segmentBytes);
+            long seq = segment.scan();
+            segments.put(base, segment);
+            nextSeq = Math.max(nextSeq, seq);
+        }
+        head = segments.isEmpty() ? roll() : segments.lastEntry().getValue();
+
+        // курсор чтения — на первую запись после checkpoint
+        readSeq = checkpoint + 1;
+        Map.Entry<Long, Segment> start = segments.floorEntry(readSeq);
+        readSegment = start != null ? start.getValue() : segments.firstEntry().getValue();
+        readPos = 0;
+        long seq = readSegment.base;
+        while (seq < readSeq && readPos < readSegment.writePos) {
+            readPos += HEADER_BYTES + readSegment.buf.getInt(readPos);
+            seq++;
+        }
+        if (readSeq < readSegment.base) {
+            readSeq = readSegment.base; // записи между checkpoint и началом сегмента потеряны с диска
+        }
+        deleteSegmentsUpTo(checkpoint);
+    }
+
+    /**
+     * Дописывает записи и, если включён fsync, сбрасывает их на диск до возврата.
+     *
+     * @return seq последней записи
+     */
+    long append(List<byte[]> payloads) throws IOException {
+        // проверяем всю пачку до записи: иначе её начало уже видно next(), а вызывающий повторит пачку целиком
+        for (byte[] payload : payloads) {
+            if (HEADER_BYTES + payload.length > segmentBytes) {
+                throw new IllegalArgumentException("Record of %d bytes does not fit a %d-byte segment"
+                        .formatted(payload.length, segmentBytes));
+            }
+        }
+        lock.lock();
+        try {
+            int flushFrom = head.writePos;
+            for (byte[] payload : payloads) {
+                int need = HEADER_BYTES + payload.length;
+                if (head.writePos + need > segmentBytes) {
+                    flush(head, flushFrom);
+                    head = roll();
+                    flushFrom = 0;
+                }
+                head.write(nextSeq++, payload);
+            }
+            flush(head, flushFrom);
+            appended.signalAll();
+            return nextSeq - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Следующая непрочитанная запись или null, если за {@code timeoutMs} ничего не появилось. */
+    Entry next(long timeoutMs) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (readSeq >= nextSeq) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = appended.awaitNanos(nanos);
+            }
+            if (readPos >= readSegment.writePos) {
+                readSegment = segments.higherEntry(readSegment.base).getValue();
+                readPos = 0;
+                readSeq = readSegment.base;
+            }
+            int length = readSegment.buf.getInt(readPos);
+            byte[] payload = new byte[length];
+            readSegment.buf.get(readPos + HEADER_BYTES, payload);
+            var entry = new Entry(readSeq, payload);
+            readPos += HEADER_BYTES + length;
+            readSeq++;
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Запоминает, что всё до {@code seq} включительно обработано, и удаляет ненужные сегменты. */
+    void checkpoint(long seq) throws IOException {
+        lock.lock();
+        try {
+            if (seq <= checkpoint) {
+                return;
+            }
+            Path tmp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+            Files.writeString(tmp, Long.toString(seq));
+            Files.move(tmp, dir.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            checkpoint = seq;
+            deleteSegmentsUpTo(seq);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long lastSeq() {
+        lock.lock();
+        try {
+            return nextSeq - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * seq записи, которую вернёт следующий {@link #next}. Сразу после открытия — первая запись
+     * после checkpoint, что есть на диске: если часть записей потеряна, он дальше checkpoint + 1.
+     */
+    long readSeq() {
+        lock.lock();
+        try {
+            return readSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long checkpointSeq() {
+        lock.lock();
+        try {
+            return checkpoint;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int segmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+            segments.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Segment roll() throws IOException {
+        Segment segment = Segment.map(segmentPath(nextSeq), nextSeq, segmentBytes);
+        segments.put(segment.base, segment);
+        return segment;
+    }
+
+    private void flush(Segment segment, int from) {
+        if (fsync && segment.writePos > from) {
+            segment.buf.force(from, segment.writePos - from);
+        }
+    }
+
+    // сегмент удаляется, если все его записи не позже seq и из него больше не пишут и не читают
+    private void deleteSegmentsUpTo(long seq) throws IOException {
+        while (segments.size() > 1) {
+            Segment first = segments.firstEntry().getValue();
+            long nextBase = segments.higherKey(first.base);
+            if (nextBase - 1 > seq || first == readSegment || first == head) {
+                return;
+            }
+            segments.pollFirstEntry();
+            first.channel.close();
+            Files.deleteIfExists(first.path);
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return dir.resolve("%020d%s".formatted(base, SEGMENT_SUFFIX));
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long base;
+        private final FileChannel channel;
+        private final MappedByteBuffer buf;
+        private int writePos;
+
+        private Segment(Path path, long base, FileChannel channel, MappedByteBuffer buf) {
+            this.path = path;
+            this.base = base;
+            this.channel = channel;
+            this.buf = buf;
+        }
+
+        static Segment map(Path path, long base, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(path, base, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        /** Находит конец целых записей; возвращает seq, с которого продолжится запись. */
+        long scan() {
+            long seq = base;
+            int pos = 0;
+            while (pos + HEADER_BYTES <= buf.capacity()) {
+                int length = buf.getInt(pos);
+                if (length <= 0 || pos + HEADER_BYTES + length > buf.capacity()
+                        || buf.getLong(pos + 8) != seq || buf.getInt(pos + 4) != crc(pos + 8, length)) {
+                    break;
+                }
+                pos += HEADER_BYTES + length;
+                seq++;
+            }
+            if (pos + 4 <= buf.capacity() && buf.getInt(pos) != 0) {
+                log.warn("Spool segment {}: torn record at offset {} discarded", path.getFileName(), pos);
+                buf.putInt(pos, 0);
+            }
+            writePos = pos;
+            return seq;
+        }
+
+        void write(long seq, byte[] payload) {
+            int pos = writePos;
+            buf.putLong(pos + 8, seq);
+            buf.put(pos + HEADER_BYTES, payload);
+            buf.putInt(pos + 4, crc(pos + 8, payload.length));
+            // длина — последней: пока её нет, запись невидима для scan()
+            buf.putInt(pos, payload.length);
+            writePos = pos + HEADER_BYTES + payload.length;
+            if (writePos + 4 <= buf.capacity()) {
+                buf.putInt(writePos, 0);
+            }
+        }
+
+        // crc по seq и payload
+        private int crc(int from, int payloadLength) {
+            var crc = new CRC32C();
+            crc.update(buf.slice(from, 8 + payloadLength));
+            return (int) crc.getValue();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package org.example.notificationservice.spool;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.example.notificationservice.config.SpoolProperties;
+import org.example.notificationservice.events.UserEvent;
+import org.example.notificationservice.mail.MailService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальный спул писем. Листенер дописывает события в {@link MailJournal} и сразу коммитит
+ * оффсеты: запись на диске уже надёжна, а медленный SMTP больше не держит консьюмер.
+ * Фоновый отправитель читает журнал по порядку и раскладывает записи по {@code max-in-flight}
+ * дорожкам по userId: дорожка шлёт свои письма последовательно, так что письма одного
+ * пользователя уходят в порядке журнала, а разные пользователи — параллельно. У каждой
+ * дорожки своя граница {@code lane-capacity}: зависшая дорожка останавливает чтение журнала,
+ * только когда заполнится сама, а остальные тем временем досылают своё.
+ * Checkpoint — seq, до которого всё отправлено или переложено в retry-топик.
+ * После рестарта всё, что после checkpoint, отправляется заново; дубли отсекает
+ * дедупликация по eventId.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${app.notification.spool.enabled:false} and !${app.notification.coalesce.enabled:false}")
+public class MailSpool implements MeterBinder {
+
+    private static final long RETRY_FORWARD_BACKOFF_MS = 1000;
+
+    private final SpoolProperties props;
+    private final MailService mailService;
+    private final KafkaTemplate<Object, Object> kafkaTemplate;
+    private final AppKafkaProperties kafkaProps;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper;
+
+    private MailJournal journal;
+    private Thread dispatcher;
+    private volatile boolean running;
+    private final List<BlockingQueue<Pending>> lanes;
+    private final List<Future<?>> laneWorkers = new ArrayList<>();
+
+    // seq, отправленные не по порядку; completedUpTo — все до него включительно
+    private final ConcurrentSkipListSet<Long> completed = new ConcurrentSkipListSet<>();
+    private long completedUpTo;
+
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong recoveryNanos = new AtomicLong();
+    private final AtomicLong appendedTotal = new AtomicLong();
+    private Timer appendTimer;
+
+    public MailSpool(SpoolProperties props,
+                     MailService mailService,
+                     KafkaTemplate<Object, Object> kafkaTemplate,
+                     AppKafkaProperties kafkaProps,
+                     @Qualifier("mailDispatchExecutor") ExecutorService executor,
+                     ObjectMapper objectMapper) {
+        this.props = props;
+        this.mailService = mailService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.kafkaProps = kafkaProps;
+        this.executor = executor;
+        this.objectMapper = objectMapper;
+        this.lanes = new ArrayList<>(props.getMaxInFlight());
+        for (int i = 0; i < props.getMaxInFlight(); i++) {
+            lanes.add(new LinkedBlockingQueue<>(props.getLaneCapacity()));
+        }
+    }
+
+    private record Pending(long seq, UserEvent event) {}
+
+    @PostConstruct
+    void start() throws IOException {
+        long started = System.nanoTime();
+        journal = MailJournal.open(Path.of(props.getDir()), props.getSegmentBytes(), props.isFsync());
+        recoveryNanos.set(System.nanoTime() - started);
+        synchronized (this) {
+            // не checkpointSeq(): если записи после checkpoint пропали с диска, чтение начнётся
+            // дальше, и пропущенные seq уже никогда не будут отмечены
+            completedUpTo = journal.readSeq() - 1;
+        }
+        recovered.set(journal.lastSeq() - completedUpTo);
+        log.info("Mail spool opened: dir={}, segments={}, pending={}, recoveredIn={}ms", props.getDir(),
+                journal.segmentCount(), recovered.get(), TimeUnit.NANOSECONDS.toMillis(recoveryNanos.get()));
+        running = true;
+        lanes.forEach(lane -> laneWorkers.add(executor.submit(() -> runLane(lane))));
+        dispatcher = Thread.ofVirtual().name("mail-spool-dispatcher").start(this::dispatch);
+    }
+
+    /** Дописывает события в журнал; по возврату они на диске (при {@code fsync}) и оффсеты можно коммитить. */
+    public void append(List<UserEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<byte[]> payloads = new ArrayList<>(events.size());
+        try {
+            for (UserEvent event : events) {
+                payloads.add(objectMapper.writeValueAsBytes(event));
+            }
+            long started = System.nanoTime();
+            journal.append(payloads);
+            if (appendTimer != null) {
+                appendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+            appendedTotal.addAndGet(events.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Mail spool append failed", e);
+        }
+    }
+
+    /** Записи в журнале, письма по которым ещё не отправлены. */
+    public long backlog() {
+        MailJournal j = journal;
+        if (j == null) {
+            return 0;
+        }
+        synchronized (this) {
+            return j.lastSeq() - completedUpTo;
+        }
+    }
+
+    // put ждёт, только пока заполнена дорожка этой записи
+    private void dispatch() {
+        while (running) {
+            try {
+                MailJournal.Entry entry = journal.next(500);
+                if (entry == null) {
+                    continue;
+                }
+                UserEvent event;
+                try {
+                    event = objectMapper.readValue(entry.payload(), UserEvent.class);
+                } catch (IOException e) {
+                    // битый payload при целом crc — это ошибка кода, а не диска; повторять бессмысленно
+                    log.error("Unreadable spool record skipped: seq={}", entry.seq(), e);
+                    complete(entry.seq());
+                    continue;
+                }
+                // та же раскладка, что splitByKey в BatchNotificationListener
+                lanes.get(Math.floorMod(Objects.hashCode(event.getUserId()), lanes.size()))
+                        .put(new Pending(entry.seq(), event));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // после остановки дорожка досылает уже взятое из журнала, пока stop() ждёт drain-timeout
+    private void runLane(BlockingQueue<Pending> lane) {
+        while (running || !lane.isEmpty()) {
+            try {
+                Pending next = lane.poll(500, TimeUnit.MILLISECONDS);
+                if (next != null) {
+                    deliver(next);
+                }
+            } catch (InterruptedException e) {
+                return; // не отмечаем: записи повторятся после рестарта
+            }
+        }
+    }
+
+    private void deliver(Pending pending) throws InterruptedException {
+        UserEvent event = pending.event();
+        try {
+            mailService.sendFor(event);
+        } catch (Exception e) {
+            log.warn("Spooled mail failed, forwarding to retry topic: seq={}, userId={}, error={}",
+                    pending.seq(), event.getUserId(), e.toString());
+            forwardToRetry(event);
+        }
+        complete(pending.seq());
+    }
+
+    // пока не удалось переложить в retry-топик, запись не отмечается отправленной
+    private void forwardToRetry(UserEvent event) throws InterruptedException {
+        while (true) {
+            try {
+                kafkaTemplate.send(kafkaProps.getRetryTopic(), event.key(), event)
+                        .get(10, TimeUnit.SECONDS);
+                return;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (!running) {
+                    throw new InterruptedException("Spool stopped before forwarding to retry topic");
+                }
+                log.error("Forwarding spooled mail to retry topic failed, will retry: userId={}, error={}",
+                        event.getUserId(), e.toString());
+                Thread.sleep(RETRY_FORWARD_BACKOFF_MS);
+            }
+        }
+    }
+
+    private synchronized void complete(long seq) {
+        completed.add(seq);
+        while (completed.remove(completedUpTo + 1)) {
+            completedUpTo++;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.notification.spool.checkpoint-interval-ms:1000}")
+    public void checkpoint() {
+        long upTo;
+        synchronized (this) {
+            upTo = completedUpTo;
+        }
+        try {
+            journal.checkpoint(upTo);
+        } catch (IOException e) {
+            log.warn("Failed to save spool checkpoint: {}", e.toString());
+        }
+    }
+
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join();
+        long deadline = System.nanoTime() + props.getDrainTimeout().toNanos();
+        boolean drained = true;
+        for (Future<?> worker : laneWorkers) {
+            try {
+                worker.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                drained = false;
+                worker.cancel(true);
+            } catch (ExecutionException e) {
+                log.error("Mail spool lane failed", e.getCause());
+            }
+        }
+        if (!drained) {
+            log.warn("Mail spool stopped with sends in flight; they will be replayed on restart");
+        }
+        checkpoint();
+        log.info("Mail spool closed: backlog={}", backlog());
+        journal.close();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("notification.spool.backlog", this, MailSpool::backlog)
+                .description("Spooled notifications not yet sent").register(registry);
+        Gauge.builder("notification.spool.segments", this, s -> s.journal == null ? 0 : s.journal.segmentCount())
+                .register(registry);
+        FunctionCounter.builder("notification.spool.appended", appendedTotal, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("notification.spool.recovered", recovered, AtomicLong::get)
+                .description("Notifications found pending in the journal at startup").register(registry);
+        TimeGauge.builder("notification.spool.recovery.time", recoveryNanos, TimeUnit.NANOSECONDS, AtomicLong::get)
+                .register(registry);
+        appendTimer = Timer.builder("notification.spool.append")
+                .description("Journal append including msync, per poll")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+}
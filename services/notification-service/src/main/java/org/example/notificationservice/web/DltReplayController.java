@@ -0,0 +1,25 @@
+package org.example.notificationservice.web;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.example.notificationservice.kafka.DltReplayService;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/notifications/dlt")
+@RequiredArgsConstructor
+@Validated
+public class DltReplayController {
+
+    private final DltReplayService replayService;
+    private final AppKafkaProperties props;
+
+    /** Перекладывает до {@code limit} событий из DLT обратно в цепочку повторов. */
+    @PostMapping("/replay")
+    public DltReplayResponse replay(@RequestParam(name = "limit", defaultValue = "100") @Min(1) @Max(10_000) int limit) {
+        return new DltReplayResponse(props.getDeadLetterTopic(), replayService.replay(limit));
+    }
+}
@@ -1,7 +1,11 @@
 package org.example.notificationservice.web;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.notificationservice.mail.MailBatchTooLargeException;
+import org.example.notificationservice.mail.MailQueueFullException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.mail.MailException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -63,6 +67,23 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.BAD_GATEWAY, "Mail gateway error: " + ex.getMessage(), req.getRequestURI());
     }
 
+    // 429: очередь ручной отправки заполнена
+    @ExceptionHandler(MailQueueFullException.class)
+    public ResponseEntity<ErrorResponse> handleQueueFull(MailQueueFullException ex, HttpServletRequest req) {
+        log.warn("Mail queue full at {}: {}", req.getRequestURI(), ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(build(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), req.getRequestURI()));
+    }
+
+    // 413: пачка больше всей очереди, повтор не поможет
+    @ExceptionHandler(MailBatchTooLargeException.class)
+    public ResponseEntity<ErrorResponse> handleBatchTooLarge(MailBatchTooLargeException ex, HttpServletRequest req) {
+        log.warn("Mail batch too large at {}: {}", req.getRequestURI(), ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(build(HttpStatus.PAYLOAD_TOO_LARGE, ex.getMessage(), req.getRequestURI()));
+    }
+
     // 400: явная ошибка клиента
     @ExceptionHandler(IllegalArgumentException.class)
     public ErrorResponse handleIllegal(IllegalArgumentException ex, HttpServletRequest req) {
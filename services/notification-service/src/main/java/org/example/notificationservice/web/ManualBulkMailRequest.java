@@ -0,0 +1,19 @@
+package org.example.notificationservice.web;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.example.notificationservice.events.UserEvent;
+
+import java.util.List;
+
+public record ManualBulkMailRequest(
+        @NotEmpty @Size(max = ManualBulkMailRequest.MAX_RECIPIENTS) List<@Email @NotBlank String> emails,
+        @NotNull UserEvent.Type operation,
+        // необязательна: без неё письмо уходит на default-locale
+        @Size(max = 35) String locale
+) {
+    public static final int MAX_RECIPIENTS = 1000;
+}
@@ -3,11 +3,14 @@ package org.example.notificationservice.web;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.example.notificationservice.events.UserEvent;
-import org.example.notificationservice.mail.MailService;
+import org.example.notificationservice.mail.ManualMailQueue;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.UUID;
+
 
 @RestController
 @RequestMapping("/api/notifications")
@@ -15,15 +18,34 @@ import org.springframework.web.bind.annotation.*;
 @Validated
 public class ManualMailController {
 
-    private final MailService mailService;
+    private final ManualMailQueue mailQueue;
 
+    /** Письмо ставится в очередь; 429, если она заполнена. */
     @PostMapping("/send-mail")
     @ResponseStatus(HttpStatus.ACCEPTED)
     public void sendMail(@Valid @RequestBody ManualMailRequest req) {
-        var evt = UserEvent.builder()
-                .eventType(req.operation())
-                .email(req.email())
+        mailQueue.enqueue(List.of(toEvent(req.email(), req.operation(), req.locale())));
+    }
+
+    /** Одно уведомление многим адресатам: пачка принимается целиком или отклоняется с 429 (413, если больше всей очереди). */
+    @PostMapping("/send-mails")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ManualMailResponse sendMails(@Valid @RequestBody ManualBulkMailRequest req) {
+        List<UserEvent> events = req.emails().stream()
+                .map(email -> toEvent(email, req.operation(), req.locale()))
+                .toList();
+        mailQueue.enqueue(events);
+        return new ManualMailResponse(events.size());
+    }
+
+    // eventId нужен, чтобы повтор из retry-топика не послал письмо второй раз
+    private static UserEvent toEvent(String email, UserEvent.Type operation, String locale) {
+        return UserEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .eventType(operation)
+                .email(email)
+                .source("manual")
+                .locale(locale)
                 .build();
-        mailService.sendFor(evt);
     }
 }
@@ -3,9 +3,12 @@ package org.example.notificationservice.web;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import org.example.notificationservice.events.UserEvent;
 
 public record ManualMailRequest(
         @Email @NotBlank String email,
-        @NotNull UserEvent.Type operation
+        @NotNull UserEvent.Type operation,
+        // необязательна: без неё письмо уходит на default-locale
+        @Size(max = 35) String locale
 ) {}
\ No newline at end of file
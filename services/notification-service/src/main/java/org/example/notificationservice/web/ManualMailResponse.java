@@ -0,0 +1,3 @@
+package org.example.notificationservice.web;
+
+public record ManualMailResponse(int accepted) {}
@@ -0,0 +1,132 @@
+package org.example.notificationservice.dedup;
+
+import org.example.notificationservice.config.DedupProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventDeduplicatorTest {
+
+    @TempDir
+    Path tmp;
+
+    private static DedupProperties props() {
+        var p = new DedupProperties();
+        p.setLruSize(1_000);
+        p.setBloomIdsPerGeneration(10_000);
+        p.setBloomFalsePositiveRate(1e-3);
+        return p;
+    }
+
+    @Test
+    void deliveredEvent_isDuplicate_newOneIsNot() {
+        var dedup = new EventDeduplicator(props());
+        String id = UUID.randomUUID().toString();
+
+        assertThat(dedup.isDuplicate(id)).isFalse();
+        dedup.markDelivered(id);
+
+        assertThat(dedup.isDuplicate(id)).isTrue();
+        assertThat(dedup.isDuplicate(UUID.randomUUID().toString())).isFalse();
+        assertThat(dedup.isDuplicate(null)).isFalse();
+    }
+
+    @Test
+    void idOlderThanLru_isSentAgain_unlessBloomIsTrusted() {
+        var p = props();
+        p.setLruSize(10);
+        var dedup = new EventDeduplicator(p);
+        String old = UUID.randomUUID().toString();
+        dedup.markDelivered(old);
+        for (int i = 0; i < 10; i++) {
+            dedup.markDelivered(UUID.randomUUID().toString());
+        }
+
+        assertThat(dedup.isDuplicate(old)).isFalse();
+        p.setTrustBloomBeyondLru(true);
+        assertThat(dedup.isDuplicate(old)).isTrue();
+    }
+
+    @Test
+    void bloomRotation_keepsPreviousGeneration_andDropsTheOneBefore() {
+        var p = props();
+        p.setLruSize(1);
+        p.setTrustBloomBeyondLru(true);
+        p.setBloomIdsPerGeneration(100);
+        var dedup = new EventDeduplicator(p);
+        String first = UUID.randomUUID().toString();
+        dedup.markDelivered(first);
+
+        // заполняем первое поколение — first переезжает в previous и ещё помнится
+        for (int i = 0; i < 99; i++) {
+            dedup.markDelivered(UUID.randomUUID().toString());
+        }
+        assertThat(dedup.isDuplicate(first)).isTrue();
+
+        // второе поворачивание выбрасывает поколение с first
+        for (int i = 0; i < 100; i++) {
+            dedup.markDelivered(UUID.randomUUID().toString());
+        }
+        assertThat(dedup.isDuplicate(first)).isFalse();
+    }
+
+    @Test
+    void stateSurvivesRestart() {
+        var p = props();
+        p.setFile(tmp.resolve("dedup.bin").toString());
+        var before = new EventDeduplicator(p);
+        String id = UUID.randomUUID().toString();
+        before.markDelivered(id);
+        before.shutdown();
+
+        var after = new EventDeduplicator(p);
+
+        assertThat(after.isDuplicate(id)).isTrue();
+        assertThat(after.lruSize()).isEqualTo(1);
+    }
+
+    @Test
+    void changedBloomSettings_startEmpty() {
+        var p = props();
+        p.setFile(tmp.resolve("dedup.bin").toString());
+        var before = new EventDeduplicator(p);
+        String id = UUID.randomUUID().toString();
+        before.markDelivered(id);
+        before.shutdown();
+
+        p.setBloomIdsPerGeneration(20_000);
+        var after = new EventDeduplicator(p);
+
+        assertThat(after.isDuplicate(id)).isFalse();
+    }
+
+    /** Доля ложных срабатывания Bloom на миллионе id и размер фильтра — печатаются в лог теста. */
+    @Test
+    void bloomFalsePositiveRate_isWithinConfiguredBound() {
+        int n = 1_000_000;
+        double fpp = 1e-3;
+        var bloom = BloomFilter.create(n, fpp);
+        for (int i = 0; i < n; i++) {
+            String id = UUID.randomUUID().toString();
+            bloom.put(EventDeduplicator.hash1(id), EventDeduplicator.hash2(id));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < n; i++) {
+            String id = UUID.randomUUID().toString();
+            if (bloom.mightContain(EventDeduplicator.hash1(id), EventDeduplicator.hash2(id))) {
+                falsePositives++;
+            }
+        }
+        double measured = (double) falsePositives / n;
+        System.out.printf("Bloom n=%d p=%.0e: measured fpp=%.2e, k=%d, size=%.2f MB%n",
+                n, fpp, measured, bloom.hashes(), bloom.sizeInBytes() / 1024.0 / 1024.0);
+
+        assertThat(measured).isLessThan(fpp * 1.5);
+        // ~14.4 бит на id при p = 1e-3
+        assertThat(bloom.sizeInBytes()).isBetween(1_700_000L, 1_900_000L);
+    }
+}
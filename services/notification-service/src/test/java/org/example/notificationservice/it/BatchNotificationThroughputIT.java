@@ -0,0 +1,113 @@
+package org.example.notificationservice.it;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.awaitility.Awaitility;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.example.notificationservice.events.UserEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Batch-листенер против GreenMail: все письма доходят, битая запись через retry-топик
+ * уезжает в DLT.
+ * Пропускная способность пишется в лог (mails/s) — это ориентир для сравнения режимов
+ * на одной машине, а не жёсткий порог.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.mail.port=3026",
+        "app.kafka.listener.batch-enabled=true",
+        "app.kafka.listener.concurrency=4",
+        "app.kafka.listener.max-in-flight=16"
+})
+@EmbeddedKafka(partitions = 4, topics = {"user.account", "user.account.mail-dlt"})
+class BatchNotificationThroughputIT {
+
+    private static final int MAILS = 300;
+
+    @Autowired
+    EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    AppKafkaProperties props;
+
+    private GreenMail greenMail;
+    private KafkaTemplate<String, UserEvent> template;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = new GreenMail(new ServerSetup(3026, null, "smtp"));
+        greenMail.start();
+
+        template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                "bootstrap.servers", embeddedKafka.getBrokersAsString(),
+                "key.serializer", StringSerializer.class,
+                "value.serializer", JsonSerializer.class
+        )));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (greenMail != null) greenMail.stop();
+    }
+
+    @Test
+    void batchOfEvents_allMailsDelivered_andBrokenRecordDeadLettered() {
+        long started = System.nanoTime();
+        for (long userId = 1; userId <= MAILS; userId++) {
+            send(userId, "user%d@example.com".formatted(userId));
+        }
+        // адрес не парсится — MailParseException, повторять бессмысленно, запись уходит в DLT
+        send(MAILS + 1L, "<broken");
+        template.flush();
+
+        Awaitility.await().atMost(Duration.ofSeconds(60)).untilAsserted(() ->
+                assertThat(greenMail.getReceivedMessages()).hasSize(MAILS));
+        long elapsedMs = Math.max(1, Duration.ofNanos(System.nanoTime() - started).toMillis());
+        log.info("Batch listener throughput: {} mails in {} ms ({} mails/s)",
+                MAILS, elapsedMs, MAILS * 1000L / elapsedMs);
+
+        try (Consumer<String, String> dlt = new DefaultKafkaConsumerFactory<>(
+                KafkaTestUtils.consumerProps("dlt-check", "false", embeddedKafka),
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(dlt, props.getDeadLetterTopic());
+            ConsumerRecord<String, String> record =
+                    KafkaTestUtils.getSingleRecord(dlt, props.getDeadLetterTopic(), Duration.ofSeconds(20));
+            assertThat(record.key()).isEqualTo(String.valueOf(MAILS + 1L));
+            assertThat(record.value()).contains("<broken");
+            assertThat(record.headers().lastHeader("kafka_dlt-original-topic")).isNotNull();
+        }
+    }
+
+    private void send(long userId, String email) {
+        var evt = UserEvent.builder()
+                .eventType(UserEvent.Type.USER_CREATED)
+                .userId(userId)
+                .email(email)
+                .build();
+        template.send(new ProducerRecord<>(props.getUserTopic(), String.valueOf(userId), evt));
+    }
+}
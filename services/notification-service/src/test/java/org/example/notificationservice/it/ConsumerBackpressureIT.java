@@ -0,0 +1,108 @@
+package org.example.notificationservice.it;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.awaitility.Awaitility;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.example.notificationservice.events.UserEvent;
+import org.example.notificationservice.kafka.BackpressureEndpoint;
+import org.example.notificationservice.kafka.ConsumerBackpressure;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Backpressure: домен ограничен 5 письмами в секунду, пачка из 30 писем переполняет
+ * конвейер — консьюмер встаёт на паузу, а когда письма разошлись, снова читает.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.mail.port=3031",
+        "app.kafka.listener.batch-enabled=true",
+        "app.kafka.listener.concurrency=1",
+        "app.kafka.backpressure.high-watermark=10",
+        "app.kafka.backpressure.low-watermark=2",
+        "app.kafka.backpressure.check-interval-ms=50",
+        "app.mail.rate-limit.enabled=true",
+        "app.mail.rate-limit.defaults.permits-per-second=5",
+        "app.mail.rate-limit.defaults.burst=1"
+})
+@EmbeddedKafka(partitions = 1, topics = {"user.account"})
+class ConsumerBackpressureIT {
+
+    private static final int MAILS = 30;
+
+    @Autowired
+    EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    AppKafkaProperties props;
+
+    @Autowired
+    ConsumerBackpressure backpressure;
+
+    @Autowired
+    BackpressureEndpoint endpoint;
+
+    private GreenMail greenMail;
+    private KafkaTemplate<String, UserEvent> template;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = new GreenMail(new ServerSetup(3031, null, "smtp"));
+        greenMail.start();
+        template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                "bootstrap.servers", embeddedKafka.getBrokersAsString(),
+                "key.serializer", StringSerializer.class,
+                "value.serializer", JsonSerializer.class
+        )));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (greenMail != null) greenMail.stop();
+    }
+
+    @Test
+    void saturatedPipeline_pausesConsumer_andResumesWhenDrained() {
+        long pausesBefore = backpressure.pauseCount();
+        for (long userId = 1; userId <= MAILS; userId++) {
+            var evt = UserEvent.builder()
+                    .eventId(UUID.randomUUID().toString())
+                    .eventType(UserEvent.Type.USER_CREATED)
+                    .userId(userId)
+                    .email("user" + userId + "@throttled.example.com")
+                    .build();
+            template.send(new ProducerRecord<>(props.getUserTopic(), String.valueOf(userId), evt));
+        }
+        template.flush();
+
+        Awaitility.await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            assertThat(backpressure.pauseCount()).isGreaterThan(pausesBefore);
+            assertThat(endpoint.status().inFlight()).isGreaterThanOrEqualTo(10);
+        });
+
+        Awaitility.await().atMost(Duration.ofSeconds(30)).untilAsserted(() -> {
+            assertThat(greenMail.getReceivedMessages()).hasSize(MAILS);
+            var status = endpoint.status();
+            assertThat(status.paused()).isFalse();
+            assertThat(status.inFlight()).isZero();
+            assertThat(status.lag()).containsEntry(props.getUserTopic() + "-0", 0L);
+        });
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.notificationservice.it;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import jakarta.mail.internet.MimeMessage;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.awaitility.Awaitility;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.example.notificationservice.events.UserEvent;
+import org.example.notificationservice.spool.MailSpool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Спул: SMTP медленный (5 писем в секунду на домен), но оффсеты коммитятся сразу после
+ * записи в журнал, а письма досылаются в фоне. Письма одного пользователя приходят
+ * в порядке событий, хотя разные пользователи отправляются параллельно.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.mail.port=3032",
+        "app.kafka.listener.concurrency=1",
+        "app.notification.spool.enabled=true",
+        "app.notification.spool.dir=${java.io.tmpdir}/notification-service-it/spool-${random.uuid}",
+        "app.notification.spool.checkpoint-interval-ms=100",
+        "app.mail.rate-limit.enabled=true",
+        "app.mail.rate-limit.defaults.permits-per-second=5",
+        "app.mail.rate-limit.defaults.burst=1"
+})
+@EmbeddedKafka(partitions = 1, topics = {"user.account"})
+class MailSpoolIT {
+
+    private static final String GROUP = "notification-service";
+    private static final int MAILS = 15;
+
+    @Autowired
+    EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    AppKafkaProperties props;
+
+    @Autowired
+    MailSpool spool;
+
+    private GreenMail greenMail;
+    private KafkaTemplate<String, UserEvent> template;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = new GreenMail(new ServerSetup(3032, null, "smtp"));
+        greenMail.start();
+        template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                "bootstrap.servers", embeddedKafka.getBrokersAsString(),
+                "key.serializer", StringSerializer.class,
+                "value.serializer", JsonSerializer.class
+        )));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (greenMail != null) greenMail.stop();
+    }
+
+    @Test
+    void offsetsCommittedOnceSpooled_andMailsDeliveredInBackground_inOrderPerUser() throws Exception {
+        for (long userId = 1; userId <= MAILS; userId++) {
+            send(userId, UserEvent.Type.USER_CREATED);
+            send(userId, UserEvent.Type.USER_UPDATED); // писем не даёт и в журнал не попадает
+            send(userId, UserEvent.Type.USER_DELETED);
+        }
+        template.flush();
+
+        // весь топик закоммичен, хотя при 5 письмах/с отправлена лишь малая часть
+        Awaitility.await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(committedOffset()).isEqualTo(endOffset()));
+        assertThat(greenMail.getReceivedMessages().length).isLessThan(MAILS);
+        assertThat(spool.backlog()).isPositive();
+
+        Awaitility.await().atMost(Duration.ofSeconds(20)).untilAsserted(() -> {
+            assertThat(greenMail.getReceivedMessages()).hasSize(2 * MAILS);
+            assertThat(spool.backlog()).isZero();
+        });
+
+        // порядок прихода в GreenMail: у каждого пользователя сначала «создан», потом «удалён»
+        Map<String, List<String>> subjectsByRecipient = new LinkedHashMap<>();
+        for (MimeMessage message : greenMail.getReceivedMessages()) {
+            subjectsByRecipient.computeIfAbsent(message.getAllRecipients()[0].toString(), k -> new ArrayList<>())
+                    .add(message.getSubject());
+        }
+        assertThat(subjectsByRecipient).hasSize(MAILS)
+                .allSatisfy((to, subjects) -> assertThat(subjects).containsExactly("Аккаунт создан", "Аккаунт удалён"));
+    }
+
+    private void send(long userId, UserEvent.Type type) {
+        var evt = UserEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .eventType(type)
+                .userId(userId)
+                .email("user" + userId + "@spool.example.com")
+                .build();
+        template.send(new ProducerRecord<>(props.getUserTopic(), String.valueOf(userId), evt));
+    }
+
+    private long committedOffset() throws Exception {
+        try (AdminClient admin = admin()) {
+            OffsetAndMetadata committed = admin.listConsumerGroupOffsets(GROUP)
+                    .partitionsToOffsetAndMetadata().get()
+                    .get(new TopicPartition(props.getUserTopic(), 0));
+            return committed == null ? 0 : committed.offset();
+        }
+    }
+
+    private long endOffset() throws Exception {
+        try (AdminClient admin = admin()) {
+            var tp = new TopicPartition(props.getUserTopic(), 0);
+            return admin.listOffsets(Map.of(tp, OffsetSpec.latest())).partitionResult(tp).get().offset();
+        }
+    }
+
+    private AdminClient admin() {
+        return AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, embeddedKafka.getBrokersAsString()));
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.notificationservice.it;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Ручная отправка через очередь: запрос только ставит письмо в очередь и отвечает 202,
+ * пачка больше всей очереди отклоняется целиком с 413 — повторять её бессмысленно,
+ * неудачное письмо уходит в retry-топик с адресом получателя в ключе.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.mail.port=3030",
+        "app.kafka.listener.concurrency=1",
+        "app.mail.manual.queue-capacity=5"
+})
+@AutoConfigureMockMvc
+@EmbeddedKafka(partitions = 1, topics = {"user.account"})
+class ManualMailQueueIT {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    AppKafkaProperties kafkaProps;
+
+    private GreenMail greenMail;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = new GreenMail(new ServerSetup(3030, null, "smtp"));
+        greenMail.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (greenMail != null) greenMail.stop();
+    }
+
+    @Test
+    void singleMail_acceptedAndSentInBackground() throws Exception {
+        mockMvc.perform(post("/api/notifications/send-mail")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"one@example.com\",\"operation\":\"USER_CREATED\"}"))
+                .andExpect(status().isAccepted());
+
+        Awaitility.await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(greenMail.getReceivedMessagesForDomain("one@example.com")).hasSize(1));
+        assertThat(meterRegistry.get("mail.manual.queue.wait").timer().count()).isPositive();
+    }
+
+    @Test
+    void bulkMail_sentToEveryRecipient() throws Exception {
+        mockMvc.perform(post("/api/notifications/send-mails")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"emails":["a@bulk.example.com","b@bulk.example.com","c@bulk.example.com"],
+                                 "operation":"USER_DELETED"}
+                                """))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(3));
+
+        Awaitility.await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(greenMail.getReceivedMessages()).hasSize(3));
+    }
+
+    @Test
+    void bulkLargerThanQueue_rejectedWith413_withoutRetryAfter() throws Exception {
+        double rejectedBefore = meterRegistry.get("mail.manual.rejected").counter().count();
+
+        mockMvc.perform(post("/api/notifications/send-mails")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"emails":["1@x.example.com","2@x.example.com","3@x.example.com",
+                                           "4@x.example.com","5@x.example.com","6@x.example.com"],
+                                 "operation":"USER_CREATED"}
+                                """))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(header().doesNotExist("Retry-After"));
+
+        // не «очередь занята»: в счётчик отказов по заполненности не попадает
+        assertThat(meterRegistry.get("mail.manual.rejected").counter().count()).isEqualTo(rejectedBefore);
+        Thread.sleep(500);
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+    }
+
+    @Test
+    void failedMail_forwardedToRetryTopic_keyedByRecipient() throws Exception {
+        greenMail.stop();
+        greenMail = null;
+
+        mockMvc.perform(post("/api/notifications/send-mail")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"down@example.com\",\"operation\":\"USER_CREATED\"}"))
+                .andExpect(status().isAccepted());
+
+        var consumerProps = KafkaTestUtils.consumerProps("manual-retry-check", "false", embeddedKafka);
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(consumerProps,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            consumer.subscribe(List.of(kafkaProps.getRetryTopic()));
+            ConsumerRecord<String, String> record =
+                    KafkaTestUtils.getSingleRecord(consumer, kafkaProps.getRetryTopic(), Duration.ofSeconds(20));
+            assertThat(record.key()).isEqualTo("down@example.com");
+        }
+    }
+}
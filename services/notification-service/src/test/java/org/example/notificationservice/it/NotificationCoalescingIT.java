@@ -0,0 +1,165 @@
+package org.example.notificationservice.it;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.awaitility.Awaitility;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.example.notificationservice.events.UserEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Окно склейки: пара created+deleted не даёт писем, несколько уведомлений одному адресату
+ * приходят одним письмом, оффсеты коммитятся только после отправки, а при отзыве партиции
+ * окно закрывается досрочно.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.mail.port=3029",
+        "app.kafka.listener.concurrency=1",
+        "app.notification.coalesce.enabled=true",
+        "app.notification.coalesce.window-ms=" + NotificationCoalescingIT.WINDOW_MS
+})
+@EmbeddedKafka(partitions = 1, topics = {"user.account"})
+class NotificationCoalescingIT {
+
+    static final long WINDOW_MS = 8_000;
+    private static final String GROUP = "notification-service";
+
+    @Autowired
+    EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    AppKafkaProperties props;
+
+    @Autowired
+    KafkaListenerEndpointRegistry registry;
+
+    private GreenMail greenMail;
+    private KafkaTemplate<String, UserEvent> template;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = new GreenMail(new ServerSetup(3029, null, "smtp"));
+        greenMail.start();
+        template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                "bootstrap.servers", embeddedKafka.getBrokersAsString(),
+                "key.serializer", StringSerializer.class,
+                "value.serializer", JsonSerializer.class
+        )));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (greenMail != null) greenMail.stop();
+    }
+
+    @Test
+    void cancellingPairDropped_andNotificationsMergedPerRecipient() throws Exception {
+        send(1, UserEvent.Type.USER_CREATED, "abuse@example.com");
+        send(1, UserEvent.Type.USER_DELETED, "abuse@example.com");
+        send(2, UserEvent.Type.USER_CREATED, "single@example.com");
+        send(3, UserEvent.Type.USER_DELETED, "again@example.com");
+        send(3, UserEvent.Type.USER_CREATED, "again@example.com");
+        template.flush();
+
+        Awaitility.await().atMost(Duration.ofMillis(WINDOW_MS * 3)).untilAsserted(() ->
+                assertThat(greenMail.getReceivedMessages()).hasSize(2));
+        assertThat(greenMail.getReceivedMessagesForDomain("abuse@example.com")).isEmpty();
+        assertThat(greenMail.getReceivedMessagesForDomain("single@example.com")).hasSize(1);
+        var merged = greenMail.getReceivedMessagesForDomain("again@example.com");
+        assertThat(merged).hasSize(1);
+        assertThat(merged[0].getSubject()).isEqualTo("Уведомления по аккаунту");
+
+        // всё отправлено — всё закоммичено
+        Awaitility.await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(committedOffset()).isEqualTo(endOffset()));
+    }
+
+    @Test
+    void revokedPartition_flushesWindowBeforeCommit() throws Exception {
+        MessageListenerContainer container = mainContainer();
+        send(4, UserEvent.Type.USER_CREATED, "revoke@example.com");
+        template.flush();
+
+        // дожидаемся, пока запись попадёт в окно: она получена, но не закоммичена
+        Awaitility.await().atMost(Duration.ofSeconds(10)).until(() -> endOffset() > committedOffset()
+                && !hasMail("revoke@example.com") && container.isRunning());
+        Thread.sleep(500);
+        long stoppedAt = System.currentTimeMillis();
+        try {
+            container.stop();
+            // окно ещё не истекло, но остановка отзывает партицию и закрывает его
+            assertThat(hasMail("revoke@example.com")).isTrue();
+            assertThat(System.currentTimeMillis() - stoppedAt).isLessThan(WINDOW_MS);
+            assertThat(committedOffset()).isEqualTo(endOffset());
+        } finally {
+            container.start();
+        }
+    }
+
+    private MessageListenerContainer mainContainer() {
+        return registry.getListenerContainers().stream()
+                .filter(c -> Arrays.asList(c.getContainerProperties().getTopics()).contains(props.getUserTopic()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private boolean hasMail(String to) {
+        return greenMail.getReceivedMessagesForDomain(to).length > 0;
+    }
+
+    private void send(long userId, UserEvent.Type type, String email) {
+        var evt = UserEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .eventType(type)
+                .userId(userId)
+                .email(email)
+                .build();
+        template.send(new ProducerRecord<>(props.getUserTopic(), String.valueOf(userId), evt));
+    }
+
+    private long committedOffset() throws Exception {
+        try (AdminClient admin = admin()) {
+            OffsetAndMetadata committed = admin.listConsumerGroupOffsets(GROUP)
+                    .partitionsToOffsetAndMetadata().get()
+                    .get(new TopicPartition(props.getUserTopic(), 0));
+            return committed == null ? 0 : committed.offset();
+        }
+    }
+
+    private long endOffset() throws Exception {
+        try (AdminClient admin = admin()) {
+            var tp = new TopicPartition(props.getUserTopic(), 0);
+            return admin.listOffsets(Map.of(tp, OffsetSpec.latest())).partitionResult(tp).get().offset();
+        }
+    }
+
+    private AdminClient admin() {
+        return AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, embeddedKafka.getBrokersAsString()));
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.notificationservice.it;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.awaitility.Awaitility;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.example.notificationservice.events.UserEvent;
+import org.example.notificationservice.mail.MailService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Партиционированный топик + concurrency: события одного пользователя приходят в порядке
+ * отправки, а разные пользователи обрабатываются в нескольких потоках одновременно.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "app.kafka.listener.concurrency=" + NotificationListenerOrderingIT.PARTITIONS
+})
+@EmbeddedKafka(partitions = NotificationListenerOrderingIT.PARTITIONS, topics = {"user.account"})
+class NotificationListenerOrderingIT {
+
+    static final int PARTITIONS = 4;
+    private static final int USERS = 8;
+    private static final int EVENTS_PER_USER = 10;
+    private static final long HANDLE_MS = 20;
+
+    @Autowired
+    EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    AppKafkaProperties props;
+
+    @Autowired
+    KafkaListenerEndpointRegistry registry;
+
+    @MockitoBean
+    MailService mailService;
+
+    private final Map<Long, Queue<Long>> seenByUser = new ConcurrentHashMap<>();
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    private KafkaTemplate<String, UserEvent> template;
+
+    @BeforeEach
+    void setUp() {
+        // mailService эмулирует отправку письма: запоминаем порядок и поток, немного ждём
+        doAnswer(inv -> {
+            UserEvent e = inv.getArgument(0);
+            seenByUser.computeIfAbsent(e.getUserId(), id -> new ConcurrentLinkedQueue<>())
+                    .add(Long.parseLong(e.getSource()));
+            threads.add(Thread.currentThread().getName());
+            Thread.sleep(HANDLE_MS);
+            return null;
+        }).when(mailService).sendFor(any());
+
+        template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                "bootstrap.servers", embeddedKafka.getBrokersAsString(),
+                "key.serializer", StringSerializer.class,
+                "value.serializer", JsonSerializer.class
+        )));
+
+        // ждём, пока у каждого потока будет своя партиция: сразу после старта первый
+        // консьюмер может держать их все до ребаланса
+        Awaitility.await().atMost(Duration.ofSeconds(30)).until(() -> registry.getListenerContainers().stream()
+                .map(c -> (ConcurrentMessageListenerContainer<?, ?>) c)
+                .flatMap(c -> c.getContainers().stream())
+                .allMatch(c -> c.getAssignedPartitions() != null && !c.getAssignedPartitions().isEmpty()));
+    }
+
+    @Test
+    void eventsOfOneUserKeepOrder_andUsersAreProcessedInParallel() {
+        long started = System.nanoTime();
+        for (int seq = 0; seq < EVENTS_PER_USER; seq++) {
+            for (long userId = 1; userId <= USERS; userId++) {
+                // порядковый номер кладём в source, чтобы проверить очерёдность на приёме
+                var evt = UserEvent.builder()
+                        .eventType(UserEvent.Type.USER_UPDATED)
+                        .userId(userId)
+                        .email("u%d@example.com".formatted(userId))
+                        .source(String.valueOf(seq))
+                        .build();
+                template.send(new ProducerRecord<>(props.getUserTopic(), String.valueOf(userId), evt));
+            }
+        }
+        template.flush();
+
+        Awaitility.await().atMost(Duration.ofSeconds(30)).untilAsserted(() ->
+                assertThat(seenByUser.values().stream().mapToInt(Queue::size).sum())
+                        .isEqualTo(USERS * EVENTS_PER_USER));
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - started).toMillis();
+
+        List<Long> expected = LongStream.range(0, EVENTS_PER_USER).boxed().toList();
+        seenByUser.forEach((userId, seqs) ->
+                assertThat(List.copyOf(seqs)).as("order for user %d", userId).isEqualTo(expected));
+
+        assertThat(threads).as("consumer threads").hasSizeGreaterThan(1);
+        // последовательная обработка заняла бы USERS * EVENTS_PER_USER * HANDLE_MS
+        long sequentialMs = USERS * EVENTS_PER_USER * HANDLE_MS;
+        assertThat(elapsedMs).as("elapsed vs sequential %d ms, threads %s", sequentialMs,
+                threads.stream().sorted().collect(Collectors.joining(","))).isLessThan(sequentialMs);
+    }
+}
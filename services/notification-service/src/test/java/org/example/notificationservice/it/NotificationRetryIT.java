@@ -0,0 +1,159 @@
+package org.example.notificationservice.it;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.awaitility.Awaitility;
+import org.example.notificationservice.config.AppKafkaProperties;
+import org.example.notificationservice.events.UserEvent;
+import org.example.notificationservice.kafka.DltReplayService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Retry-топики и DLT: битое событие не держит партицию, временный отказ SMTP лечится
+ * повтором, недоставленное из DLT можно прогнать заново.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.mail.port=3028",
+        "app.kafka.listener.concurrency=1",
+        "app.kafka.retry.attempts=3",
+        "app.kafka.retry.delay-ms=1000",
+        "app.kafka.retry.multiplier=2",
+        "app.kafka.retry.max-delay-ms=2000"
+})
+@EmbeddedKafka(partitions = 1, topics = {"user.account"})
+class NotificationRetryIT {
+
+    @Autowired
+    EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    AppKafkaProperties props;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    DltReplayService replayService;
+
+    private GreenMail greenMail;
+    private KafkaTemplate<String, UserEvent> template;
+
+    @BeforeEach
+    void setUp() {
+        startSmtp();
+        template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                "bootstrap.servers", embeddedKafka.getBrokersAsString(),
+                "key.serializer", StringSerializer.class,
+                "value.serializer", JsonSerializer.class
+        )));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (greenMail != null) greenMail.stop();
+    }
+
+    @Test
+    void poisonMessage_doesNotStallHealthyTraffic() {
+        double deadBefore = counter("notification.mail.dead-lettered");
+
+        send(100, "<broken");
+        for (long userId = 101; userId <= 105; userId++) {
+            send(userId, "user%d@example.com".formatted(userId));
+        }
+
+        // та же партиция, что у битого события, — письма идут без задержек на повторы
+        Awaitility.await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(greenMail.getReceivedMessages()).hasSize(5));
+        Awaitility.await().atMost(Duration.ofSeconds(15)).untilAsserted(() ->
+                assertThat(counter("notification.mail.dead-lettered")).isEqualTo(deadBefore + 1));
+        assertThat(counter("notification.mail.forwarded-to-retry")).isPositive();
+    }
+
+    @Test
+    void transientSmtpFailure_isRetriedUntilDelivered() {
+        greenMail.stop();
+        send(200, "retry@example.com");
+
+        // первая попытка из retry-топика тоже падает, дальше задержка — поднимаем SMTP
+        Awaitility.await().atMost(Duration.ofSeconds(10)).until(() ->
+                retryAttempts(props.getRetryTopic()) > 0);
+        startSmtp();
+
+        Awaitility.await().atMost(Duration.ofSeconds(15)).untilAsserted(() ->
+                assertThat(recipients()).contains("retry@example.com"));
+    }
+
+    @Test
+    void deadLetteredEvent_isDeliveredAfterReplay() {
+        double deadBefore = counter("notification.mail.dead-lettered");
+        greenMail.stop();
+        send(300, "replay@example.com");
+
+        Awaitility.await().atMost(Duration.ofSeconds(20)).untilAsserted(() ->
+                assertThat(counter("notification.mail.dead-lettered")).isGreaterThan(deadBefore));
+        startSmtp();
+
+        assertThat(replayService.replay(100)).isPositive();
+        Awaitility.await().atMost(Duration.ofSeconds(15)).untilAsserted(() ->
+                assertThat(recipients()).contains("replay@example.com"));
+        assertThat(counter("notification.mail.dlt.replayed")).isPositive();
+        // всё прочитанное закоммичено — повторный вызов ничего не перекладывает
+        assertThat(replayService.replay(100)).isZero();
+    }
+
+    private void startSmtp() {
+        greenMail = new GreenMail(new ServerSetup(3028, null, "smtp"));
+        greenMail.start();
+    }
+
+    private void send(long userId, String email) {
+        var evt = UserEvent.builder()
+                .eventType(UserEvent.Type.USER_CREATED)
+                .userId(userId)
+                .email(email)
+                .build();
+        template.send(new ProducerRecord<>(props.getUserTopic(), String.valueOf(userId), evt));
+    }
+
+    private String[] recipients() {
+        return Arrays.stream(greenMail.getReceivedMessages())
+                .map(m -> {
+                    try {
+                        return m.getAllRecipients()[0].toString();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toArray(String[]::new);
+    }
+
+    private double counter(String name) {
+        var c = meterRegistry.find(name).counter();
+        return c == null ? 0 : c.count();
+    }
+
+    private double retryAttempts(String topic) {
+        var c = meterRegistry.find("notification.mail.retry.attempts").tag("topic", topic).counter();
+        return c == null ? 0 : c.count();
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.notificationservice.it;
 
 import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.GreenMailUtil;
 import com.icegreen.greenmail.util.ServerSetup;
 import jakarta.mail.internet.MimeMessage;
 import org.apache.kafka.clients.producer.ProducerRecord;
@@ -19,12 +20,15 @@ import org.springframework.kafka.test.context.EmbeddedKafka;
 
 import java.time.Duration;
 import java.util.Map;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest(properties = {
         "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
-        "spring.mail.port=3025"   // переопределяем SMTP порт для теста
+        "spring.mail.port=3025",   // переопределяем SMTP порт для теста
+        // листенер, отправка и SMTP-пул — в режиме виртуальных потоков, как в docker
+        "spring.threads.virtual.enabled=true"
 })
 @EmbeddedKafka(partitions = 1, topics = {"user.account"})
 class NotificationServiceKafkaMailIT {
@@ -78,4 +82,50 @@ class NotificationServiceKafkaMailIT {
             assertThat(subject).contains("Аккаунт создан");
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenSameEventRedelivered_thenOnlyOneEmailIsSent() {
+        var evt = UserEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .eventType(UserEvent.Type.USER_CREATED)
+                .userId(124L)
+                .email("dup@example.com")
+                .build();
+        var other = UserEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .eventType(UserEvent.Type.USER_CREATED)
+                .userId(125L)
+                .email("other@example.com")
+                .build();
+
+        // повторная доставка того же события (как после ребаланса), затем другое событие
+        template.send(new ProducerRecord<>(props.getUserTopic(), "124", evt));
+        template.send(new ProducerRecord<>(props.getUserTopic(), "124", evt));
+        template.send(new ProducerRecord<>(props.getUserTopic(), "125", other));
+
+        // партиция одна: раз пришло письмо для other, оба дубля уже обработаны
+        Awaitility.await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(greenMail.getReceivedMessagesForDomain("other@example.com")).hasSize(1));
+        assertThat(greenMail.getReceivedMessagesForDomain("dup@example.com")).hasSize(1);
+    }
+
+    @Test
+    void whenEventHasLocale_thenLocalizedMultipartEmailIsSent() {
+        var evt = UserEvent.builder()
+                .eventType(UserEvent.Type.USER_CREATED)
+                .userId(126L)
+                .email("en@example.com")
+                .locale("en-US")
+                .build();
+
+        template.send(new ProducerRecord<>(props.getUserTopic(), "126", evt));
+
+        Awaitility.await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            MimeMessage[] messages = greenMail.getReceivedMessagesForDomain("en@example.com");
+            assertThat(messages).hasSize(1);
+            assertThat(messages[0].getSubject()).isEqualTo("Your account has been created");
+            assertThat(messages[0].getContentType()).startsWith("multipart/");
+            assertThat(GreenMailUtil.getBody(messages[0])).contains("<b>en@example.com</b>");
+        });
+    }
+}
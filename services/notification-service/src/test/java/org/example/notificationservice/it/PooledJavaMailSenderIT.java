@@ -0,0 +1,172 @@
+package org.example.notificationservice.it;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import lombok.extern.slf4j.Slf4j;
+import org.example.notificationservice.config.MailPoolProperties;
+import org.example.notificationservice.mail.PooledJavaMailSender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Пул SMTP-соединений против GreenMail. Сравнение с обычным JavaMailSenderImpl пишется
+ * в лог (mails/s): на локальном GreenMail рукопожатие дешёвое, на реальном relay с TLS
+ * и AUTH разница заметно больше. В тестах проверяется число открытых соединений.
+ */
+@Slf4j
+class PooledJavaMailSenderIT {
+
+    private static final int PORT = 3027;
+    private static final int MAILS = 200;
+
+    private GreenMail greenMail;
+    private PooledJavaMailSender pooled;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = new GreenMail(new ServerSetup(PORT, null, "smtp"));
+        greenMail.start();
+        pooled = pooledSender(new MailPoolProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pooled.destroy();
+        greenMail.stop();
+    }
+
+    @Test
+    void sequentialSends_reuseConnections() {
+        var plain = new JavaMailSenderImpl();
+        plain.setHost("localhost");
+        plain.setPort(PORT);
+
+        long plainMs = sendEach(plain);
+        long pooledMs = sendEach(pooled);
+        log.info("SMTP throughput, {} mails: connection per mail {} ms ({} mails/s), pooled {} ms ({} mails/s)",
+                MAILS, plainMs, MAILS * 1000L / Math.max(1, plainMs), pooledMs, MAILS * 1000L / Math.max(1, pooledMs));
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(2 * MAILS);
+        // max-messages-per-connection по умолчанию 100
+        assertThat(pooled.getConnectionsCreated()).isEqualTo(MAILS / 100);
+    }
+
+    @Test
+    void connectionIsReplaced_afterMaxMessagesPerConnection() {
+        var props = new MailPoolProperties();
+        props.setMaxMessagesPerConnection(10);
+        pooled.destroy();
+        pooled = pooledSender(props);
+
+        for (int i = 0; i < 25; i++) {
+            pooled.send(message(i, "u%d@example.com".formatted(i)));
+        }
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(25);
+        assertThat(pooled.getConnectionsCreated()).isEqualTo(3);
+    }
+
+    @Test
+    void batchSend_usesOneConnection_andReportsOnlyBrokenMessage() {
+        SimpleMailMessage[] batch = IntStream.range(0, 10)
+                .mapToObj(i -> message(i, i == 4 ? "<broken" : "u%d@example.com".formatted(i)))
+                .toArray(SimpleMailMessage[]::new);
+
+        assertThatThrownBy(() -> pooled.send(batch))
+                .isInstanceOfSatisfying(MailSendException.class, e ->
+                        assertThat(e.getFailedMessages()).containsOnlyKeys(batch[4]));
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(9);
+        assertThat(pooled.getConnectionsCreated()).isEqualTo(1);
+    }
+
+    @Test
+    void staleConnection_isDroppedOnBorrow() {
+        pooled.send(message(0, "a@example.com"));
+
+        // сервер перезапустился — соединение в пуле мёртвое, NOOP при выдаче это выявит
+        greenMail.stop();
+        greenMail = new GreenMail(new ServerSetup(PORT, null, "smtp"));
+        greenMail.start();
+
+        pooled.send(message(1, "b@example.com"));
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(pooled.getConnectionsCreated()).isEqualTo(2);
+    }
+
+    @Test
+    void virtualThreadSenders_doNotPinCarriers() throws Exception {
+        var props = new MailPoolProperties();
+        props.setMaxTotal(4);
+        props.setOffloadVirtualThreads(false);
+        pooled.destroy();
+        pooled = pooledSender(props);
+        // контроль: без выноса на платформенные потоки SMTPTransport закрепляет виртуальные
+        assertThat(pinnedWhileSending(pooled, 0)).isPositive();
+
+        props.setOffloadVirtualThreads(true);
+        pooled.destroy();
+        pooled = pooledSender(props);
+        assertThat(pinnedWhileSending(pooled, 100)).isZero();
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(2 * 32);
+    }
+
+    /** Шлёт 32 письма из 32 виртуальных потоков и считает события jdk.VirtualThreadPinned. */
+    private static long pinnedWhileSending(PooledJavaMailSender sender, int offset) throws InterruptedException {
+        var pinned = new AtomicLong();
+        try (var recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", e -> pinned.incrementAndGet());
+            recording.startAsync();
+            try (var senders = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 32; i++) {
+                    int n = offset + i;
+                    senders.submit(() -> sender.send(message(n, "v%d@example.com".formatted(n))));
+                }
+            }
+            recording.stop();
+        }
+        return pinned.get();
+    }
+
+    private PooledJavaMailSender pooledSender(MailPoolProperties props) {
+        var sender = new PooledJavaMailSender(props);
+        sender.setHost("localhost");
+        sender.setPort(PORT);
+        return sender;
+    }
+
+    private long sendEach(JavaMailSender sender) {
+        long started = System.nanoTime();
+        for (int i = 0; i < MAILS; i++) {
+            sender.send(message(i, "u%d@example.com".formatted(i)));
+        }
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+
+    private static SimpleMailMessage message(int i, String to) {
+        var msg = new SimpleMailMessage();
+        msg.setFrom("noreply@example.com");
+        msg.setTo(to);
+        msg.setSubject("Тест " + i);
+        msg.setText("Письмо " + i);
+        return msg;
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.notificationservice.kafka;
+
+import org.example.notificationservice.events.UserEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.example.notificationservice.events.UserEvent.Type.USER_CREATED;
+import static org.example.notificationservice.events.UserEvent.Type.USER_DELETED;
+import static org.example.notificationservice.events.UserEvent.Type.USER_UPDATED;
+
+class EventCoalescerTest {
+
+    private static UserEvent event(UserEvent.Type type, String email) {
+        return UserEvent.builder().eventType(type).userId(1L).email(email).build();
+    }
+
+    @Test
+    void createdThenDeleted_cancelOut() {
+        var result = EventCoalescer.coalesce(List.of(
+                event(USER_CREATED, "a@example.com"),
+                event(USER_UPDATED, "a@example.com"),
+                event(USER_DELETED, "a@example.com")));
+
+        assertThat(result.toSend()).isEmpty();
+        assertThat(result.cancelledPairs()).isEqualTo(1);
+    }
+
+    @Test
+    void deletedThenCreated_bothKeptInOrder() {
+        var deleted = event(USER_DELETED, "a@example.com");
+        var created = event(USER_CREATED, "a@example.com");
+
+        var result = EventCoalescer.coalesce(List.of(deleted, created));
+
+        assertThat(result.toSend()).containsExactly(deleted, created);
+        assertThat(result.cancelledPairs()).isZero();
+    }
+
+    @Test
+    void exactRepeats_collapse_andOnlyMatchingCreatedIsCancelled() {
+        var first = event(USER_CREATED, "a@example.com");
+        var result = EventCoalescer.coalesce(List.of(
+                first,
+                event(USER_CREATED, "a@example.com"),
+                event(USER_DELETED, "a@example.com"),
+                event(USER_DELETED, "a@example.com")));
+
+        // повтор CREATED схлопнулся, первый DELETED погасил CREATED, второй DELETED остался
+        assertThat(result.toSend()).extracting(UserEvent::getEventType).containsExactly(USER_DELETED);
+        assertThat(result.cancelledPairs()).isEqualTo(1);
+    }
+
+    @Test
+    void eventsWithoutMail_areDropped() {
+        var result = EventCoalescer.coalesce(List.of(event(USER_UPDATED, "a@example.com")));
+
+        assertThat(result.toSend()).isEmpty();
+    }
+}
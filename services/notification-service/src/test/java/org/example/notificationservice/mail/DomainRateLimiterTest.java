@@ -0,0 +1,107 @@
+package org.example.notificationservice.mail;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.notificationservice.config.MailRateLimitProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DomainRateLimiterTest {
+
+    private MailRateLimitProperties props;
+    private SimpleMeterRegistry registry;
+    private DomainRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        props = new MailRateLimitProperties();
+        props.getDefaults().setPermitsPerSecond(1000);
+        props.getDefaults().setBurst(1000);
+        var slow = new MailRateLimitProperties.Limit();
+        slow.setPermitsPerSecond(5);
+        slow.setBurst(1);
+        props.getDomains().put("slow.example.com", slow);
+        props.setMaxWait(Duration.ofSeconds(5));
+        registry = new SimpleMeterRegistry();
+        limiter = new DomainRateLimiter(props, registry);
+    }
+
+    @Test
+    void domainOf_isCaseInsensitive() {
+        assertThat(DomainRateLimiter.domainOf("User@Slow.Example.COM")).isEqualTo("slow.example.com");
+        assertThat(DomainRateLimiter.domainOf("broken")).isEmpty();
+    }
+
+    @Test
+    void throttledDomain_doesNotDelayOtherDomains() {
+        limiter.acquire("a@slow.example.com", MailPriority.BULK); // весь burst
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire("u" + i + "@fast.example.com", MailPriority.BULK);
+        }
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(150));
+
+        // а сам медленный домен ждёт ~1/5 с на письмо
+        start = System.nanoTime();
+        limiter.acquire("b@slow.example.com", MailPriority.BULK);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThan(Duration.ofMillis(100));
+    }
+
+    @Test
+    void transactionalLane_getsTokensBeforeWaitingBulk() throws Exception {
+        limiter.acquire("first@slow.example.com", MailPriority.BULK);
+        List<MailPriority> order = new CopyOnWriteArrayList<>();
+        var bulkWaiting = new CountDownLatch(3);
+
+        List<Thread> bulk = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            bulk.add(Thread.ofVirtual().start(() -> {
+                bulkWaiting.countDown();
+                limiter.acquire("bulk@slow.example.com", MailPriority.BULK);
+                order.add(MailPriority.BULK);
+            }));
+        }
+        bulkWaiting.await();
+        Thread.sleep(50); // все три уже стоят в очереди за токеном
+        Thread tx = Thread.ofVirtual().start(() -> {
+            limiter.acquire("tx@slow.example.com", MailPriority.TRANSACTIONAL);
+            order.add(MailPriority.TRANSACTIONAL);
+        });
+        tx.join();
+        for (Thread t : bulk) {
+            t.join();
+        }
+
+        // транзакционное письмо пришло последним, но получило токен не позже первого массового
+        assertThat(order.indexOf(MailPriority.TRANSACTIONAL)).isLessThanOrEqualTo(1);
+        assertThat(registry.get("mail.rate-limit.wait").tag("lane", "transactional").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void waitLongerThanMaxWait_fails() {
+        props.setMaxWait(Duration.ofMillis(50));
+        limiter.acquire("a@slow.example.com", MailPriority.BULK);
+
+        assertThatThrownBy(() -> limiter.acquire("b@slow.example.com", MailPriority.BULK))
+                .isInstanceOf(MailRateLimitException.class);
+        assertThat(registry.get("mail.rate-limit.timeouts").tag("lane", "bulk").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void disabled_neverBlocks() {
+        props.setEnabled(false);
+        props.setMaxWait(Duration.ZERO);
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire("a@slow.example.com", MailPriority.BULK);
+        }
+    }
+}
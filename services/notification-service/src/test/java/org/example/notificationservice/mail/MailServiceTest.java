@@ -0,0 +1,109 @@
+package org.example.notificationservice.mail;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.example.notificationservice.config.DedupProperties;
+import org.example.notificationservice.config.MailRateLimitProperties;
+import org.example.notificationservice.config.MailTemplateProperties;
+import org.example.notificationservice.dedup.EventDeduplicator;
+import org.example.notificationservice.events.UserEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MailServiceTest {
+
+    private final Map<String, Long> sentAt = new ConcurrentHashMap<>();
+    private MailRateLimitProperties limits;
+    private MailService mailService;
+
+    @BeforeEach
+    void setUp() {
+        limits = new MailRateLimitProperties();
+        limits.getDefaults().setPermitsPerSecond(1000);
+        limits.getDefaults().setBurst(1000);
+        var slow = new MailRateLimitProperties.Limit();
+        slow.setPermitsPerSecond(1);
+        slow.setBurst(1);
+        limits.getDomains().put("slow.example.com", slow);
+        limits.setMaxWait(Duration.ofMillis(300));
+
+        var template = new MailTemplateProperties.Template();
+        template.setSubject("Аккаунт создан");
+        template.setText("Здравствуйте, {{email}}!");
+        var templateProps = new MailTemplateProperties();
+        templateProps.setMessages(Map.of("USER_CREATED", Map.of("ru", template)));
+
+        // SMTP нет: отправка только запоминает, когда ушло письмо каждому адресату
+        var sender = new JavaMailSenderImpl() {
+            @Override
+            protected void doSend(MimeMessage[] messages, Object[] originals) {
+                long now = System.nanoTime();
+                for (MimeMessage msg : messages) {
+                    sentAt.put(recipient(msg), now);
+                }
+            }
+        };
+        mailService = new MailService(sender, new EventDeduplicator(new DedupProperties()),
+                new DomainRateLimiter(limits, new SimpleMeterRegistry()), new MailTemplates(templateProps));
+    }
+
+    @Test
+    void sendAllFor_throttledDomain_doesNotDelayOrFailOtherDomainsInBatch() {
+        UserEvent slow1 = created("a@slow.example.com");
+        UserEvent fast1 = created("b@fast.example.com");
+        UserEvent slow2 = created("c@slow.example.com");
+        UserEvent fast2 = created("d@fast.example.com");
+        UserEvent slow3 = created("e@slow.example.com");
+
+        long start = System.nanoTime();
+        Map<UserEvent, Exception> failed = mailService.sendAllFor(List.of(slow1, fast1, slow2, fast2, slow3));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        // быстрый домен не ждал, пока медленный исчерпает max-wait
+        assertThat(sentAt).containsKeys("b@fast.example.com", "d@fast.example.com", "a@slow.example.com");
+        assertThat(Duration.ofNanos(sentAt.get("d@fast.example.com") - start)).isLessThan(Duration.ofMillis(200));
+
+        // на медленный домен ушёл только burst; следующее письмо не дождалось токена,
+        // а за ним и остальные письма домена — сразу, без своего max-wait
+        assertThat(failed).containsOnlyKeys(slow2, slow3);
+        assertThat(failed.values()).allMatch(MailRateLimitException.class::isInstance);
+        assertThat(elapsed).isLessThan(Duration.ofMillis(550));
+    }
+
+    @Test
+    void sendAllFor_allDomainsFast_everythingSent() {
+        List<UserEvent> events = List.of(created("a@one.example.com"), created("b@two.example.com"),
+                created("c@one.example.com"));
+
+        assertThat(mailService.sendAllFor(events)).isEmpty();
+        assertThat(sentAt).containsOnlyKeys("a@one.example.com", "b@two.example.com", "c@one.example.com");
+    }
+
+    private static UserEvent created(String email) {
+        return UserEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .eventType(UserEvent.Type.USER_CREATED)
+                .email(email)
+                .build();
+    }
+
+    private static String recipient(MimeMessage msg) {
+        try {
+            return Arrays.stream(msg.getRecipients(Message.RecipientType.TO)).findFirst().orElseThrow().toString();
+        } catch (MessagingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.notificationservice.mail;
+
+import org.example.notificationservice.config.MailTemplateProperties;
+import org.example.notificationservice.events.UserEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MailTemplatesTest {
+
+    private MailTemplateProperties props;
+    private MailTemplates templates;
+
+    @BeforeEach
+    void setUp() {
+        props = new MailTemplateProperties();
+        props.setMessages(Map.of(
+                "USER_CREATED", Map.of(
+                        "ru", template("Аккаунт создан", "Здравствуйте, {{email}}!", "<p>Здравствуйте, {{email}}!</p>"),
+                        "en", template("Account created", "Hello, {{email}}!", null)),
+                MailTemplates.DIGEST, Map.of(
+                        "ru", template("Уведомления по аккаунту", null, null))));
+        templates = new MailTemplates(props);
+    }
+
+    @Test
+    void compile_substitutesVariablesAndEscapesHtml() {
+        UserEvent event = event("a<b>@example.com", null);
+        event.setUserId(42L);
+
+        assertThat(MailTemplate.compile("id={{userId}}, to={{ email }}", false).render(event))
+                .isEqualTo("id=42, to=a<b>@example.com");
+        assertThat(MailTemplate.compile("<b>{{email}}</b>", true).render(event))
+                .isEqualTo("<b>a&lt;b&gt;@example.com</b>");
+        assertThat(MailTemplate.compile("без переменных", false).render(event)).isEqualTo("без переменных");
+        assertThat(MailTemplate.compile("{{eventId}}", false).render(event)).isEmpty();
+    }
+
+    @Test
+    void compile_rejectsUnknownAndUnclosedVariables() {
+        assertThatThrownBy(() -> MailTemplate.compile("{{password}}", false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("password");
+        assertThatThrownBy(() -> MailTemplate.compile("Hello {{email", false))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void render_fallsBackFromRegionToLanguageToDefault() {
+        assertThat(templates.render(event("u@example.com", "en")).subject()).isEqualTo("Account created");
+        assertThat(templates.render(event("u@example.com", "en_GB")).subject()).isEqualTo("Account created");
+        assertThat(templates.render(event("u@example.com", "de")).subject()).isEqualTo("Аккаунт создан");
+
+        RenderedMail ru = templates.render(event("u@example.com", null));
+        assertThat(ru.text()).isEqualTo("Здравствуйте, u@example.com!");
+        assertThat(ru.html()).isEqualTo("<p>Здравствуйте, u@example.com!</p>");
+        assertThat(templates.render(event("u@example.com", "en")).html()).isNull();
+
+        UserEvent deleted = event("u@example.com", null);
+        deleted.setEventType(UserEvent.Type.USER_DELETED);
+        assertThat(templates.render(deleted)).isNull();
+    }
+
+    @Test
+    void digest_joinsPartsUnderDigestSubject() {
+        RenderedMail digest = templates.digest("u@example.com", "ru", List.of(
+                new RenderedMail("u@example.com", "s1", "first", "<p>1</p>"),
+                new RenderedMail("u@example.com", "s2", "second", "<p>2</p>")));
+
+        assertThat(digest.subject()).isEqualTo("Уведомления по аккаунту");
+        assertThat(digest.text()).isEqualTo("first\n\nsecond");
+        assertThat(digest.html()).contains("<p>1</p>", "<hr>", "<p>2</p>");
+    }
+
+    @Test
+    void refreshedProperties_recompiled_badOnesIgnored() {
+        props.setMessages(Map.of("USER_CREATED", Map.of("ru", template("Новый заголовок", "{{email}}", null))));
+        assertThat(templates.render(event("u@example.com", null)).subject()).isEqualTo("Новый заголовок");
+
+        props.setMessages(Map.of("USER_CREATED", Map.of("ru", template("{{unknown}}", "", null))));
+        assertThat(templates.render(event("u@example.com", null)).subject()).isEqualTo("Новый заголовок");
+    }
+
+    private static MailTemplateProperties.Template template(String subject, String text, String html) {
+        var t = new MailTemplateProperties.Template();
+        t.setSubject(subject);
+        t.setText(text);
+        t.setHtml(html);
+        return t;
+    }
+
+    private static UserEvent event(String email, String locale) {
+        return UserEvent.builder()
+                .eventType(UserEvent.Type.USER_CREATED)
+                .email(email)
+                .locale(locale)
+                .build();
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.notificationservice.spool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MailJournalTest {
+
+    private static final int SEGMENT = 4096;
+
+    @TempDir
+    Path dir;
+
+    private static byte[] payload(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(MailJournal journal) throws InterruptedException {
+        MailJournal.Entry entry = journal.next(100);
+        return entry == null ? null : new String(entry.payload(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void appendedRecords_areReadInOrder_acrossSegments() throws Exception {
+        try (MailJournal journal = MailJournal.open(dir, SEGMENT, true)) {
+            List<byte[]> batch = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                batch.add(payload("mail-" + i));
+            }
+            assertThat(journal.append(batch)).isEqualTo(200);
+            assertThat(journal.segmentCount()).isGreaterThan(1);
+
+            for (int i = 0; i < 200; i++) {
+                assertThat(read(journal)).isEqualTo("mail-" + i);
+            }
+            assertThat(read(journal)).isNull();
+        }
+    }
+
+    @Test
+    void oversizedRecord_rejectsWholeBatch_beforeAnythingIsWritten() throws Exception {
+        try (MailJournal journal = MailJournal.open(dir, SEGMENT, true)) {
+            journal.append(List.of(payload("before")));
+
+            assertThatThrownBy(() -> journal.append(List.of(payload("a"), payload("b"), new byte[SEGMENT])))
+                    .isInstanceOf(IllegalArgumentException.class);
+
+            assertThat(journal.lastSeq()).isEqualTo(1);
+            assertThat(read(journal)).isEqualTo("before");
+            assertThat(read(journal)).isNull();
+        }
+    }
+
+    @Test
+    void reopen_replaysOnlyRecordsAfterCheckpoint_andDropsFinishedSegments() throws Exception {
+        try (MailJournal journal = MailJournal.open(dir, SEGMENT, true)) {
+            for (int i = 0; i < 200; i++) {
+                journal.append(List.of(payload("mail-" + i)));
+            }
+            for (int i = 0; i < 150; i++) {
+                read(journal);
+            }
+            journal.checkpoint(150);
+        }
+
+        try (MailJournal journal = MailJournal.open(dir, SEGMENT, true)) {
+            assertThat(journal.checkpointSeq()).isEqualTo(150);
+            assertThat(segmentFiles()).hasSize(journal.segmentCount());
+            for (int i = 150; i < 200; i++) {
+                assertThat(read(journal)).isEqualTo("mail-" + i);
+            }
+            assertThat(read(journal)).isNull();
+
+            // после рестарта нумерация продолжается
+            assertThat(journal.append(List.of(payload("after-restart")))).isEqualTo(201);
+            assertThat(read(journal)).isEqualTo("after-restart");
+        }
+    }
+
+    @Test
+    void lostRecordsAfterCheckpoint_readStartsAtFirstRecordOnDisk() throws Exception {
+        try (MailJournal journal = MailJournal.open(dir, SEGMENT, true)) {
+            for (int i = 1; i <= 300; i++) {
+                journal.append(List.of(payload("mail-" + i)));
+            }
+            journal.checkpoint(1);
+        }
+        // первый сегмент потерян вместе с записями после checkpoint
+        List<Path> files = segmentFiles();
+        assertThat(files).hasSizeGreaterThan(1);
+        Files.delete(files.getFirst());
+        String second = files.get(1).getFileName().toString();
+        long firstOnDisk = Long.parseLong(second.substring(0, second.length() - ".seg".length()));
+
+        try (MailJournal journal = MailJournal.open(dir, SEGMENT, true)) {
+            assertThat(journal.checkpointSeq()).isEqualTo(1);
+            assertThat(journal.readSeq()).isEqualTo(firstOnDisk);
+            assertThat(read(journal)).isEqualTo("mail-" + firstOnDisk);
+        }
+    }
+
+    @Test
+    void tornTail_isDiscardedOnRecovery() throws Exception {
+        try (MailJournal journal = MailJournal.open(dir, SEGMENT, true)) {
+            journal.append(List.of(payload("first"), payload("second")));
+        }
+        // портим payload второй записи, как при падении посреди записи
+        Path segment = segmentFiles().getFirst();
+        int secondPayload = 2 * MailJournal.HEADER_BYTES + "first".length() + 1;
+        try (var file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(secondPayload);
+            file.write('X');
+        }
+
+        try (MailJournal journal = MailJournal.open(dir, SEGMENT, true)) {
+            assertThat(journal.lastSeq()).isEqualTo(1);
+            assertThat(read(journal)).isEqualTo("first");
+            assertThat(read(journal)).isNull();
+            journal.append(List.of(payload("third")));
+            assertThat(read(journal)).isEqualTo("third");
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+}
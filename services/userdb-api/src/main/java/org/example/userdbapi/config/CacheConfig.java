@@ -0,0 +1,16 @@
+package org.example.userdbapi.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Кэш-интерцептор стоит снаружи транзакционного: попадание в кэш не открывает транзакцию
+ * и не берёт соединение из пула, а @CacheEvict срабатывает уже после коммита.
+ * Размер, TTL и recordStats задаются в spring.cache.caffeine.spec.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+    public static final String USERS = "users";
+}
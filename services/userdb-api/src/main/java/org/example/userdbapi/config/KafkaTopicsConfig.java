@@ -5,15 +5,29 @@ import org.apache.kafka.clients.admin.NewTopic;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
 
 @Slf4j
 @Configuration
 public class KafkaTopicsConfig {
 
+    /**
+     * Число партиций задаёт потолок параллелизма notification-service: одна партиция —
+     * один поток консьюмера. Ключ события — userId, поэтому события одного пользователя
+     * всегда попадают в одну партицию и обрабатываются по порядку.
+     * KafkaAdmin умеет только добавлять партиции; при увеличении ключи перераспределяются,
+     * так что делать это лучше, пока в топике нет необработанных событий.
+     */
     @Bean
     public NewTopic userAccountTopic(
-            @Value("${app.kafka.user-topic:user.account}") String topic){
-        log.info("Kafka topic config initialized, ensuring topic exists: {}", topic);
-        return new NewTopic(topic, 1, (short) 1);
+            @Value("${app.kafka.user-topic:user.account}") String topic,
+            @Value("${app.kafka.user-topic-partitions:6}") int partitions,
+            @Value("${app.kafka.user-topic-replicas:1}") int replicas) {
+        log.info("Kafka topic config initialized, ensuring topic exists: {} (partitions={}, replicas={})",
+                topic, partitions, replicas);
+        return TopicBuilder.name(topic)
+                .partitions(partitions)
+                .replicas(replicas)
+                .build();
     }
 }
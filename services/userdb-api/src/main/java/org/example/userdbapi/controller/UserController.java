@@ -3,20 +3,40 @@ package org.example.userdbapi.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.userdbapi.dto.UserBatchResultDto;
 import org.example.userdbapi.dto.UserCreateDto;
 import org.example.userdbapi.dto.UserDto;
+import org.example.userdbapi.dto.UserImportResultDto;
+import org.example.userdbapi.dto.UserLookupResultDto;
+import org.example.userdbapi.dto.UserPage;
+import org.example.userdbapi.dto.UserPatchDto;
+import org.example.userdbapi.dto.UserSearchFilter;
+import org.example.userdbapi.dto.UserSort;
 import org.example.userdbapi.dto.UserUpdateDto;
+import org.example.userdbapi.exception.BadRequestException;
+import org.example.userdbapi.exception.PreconditionFailedException;
+import org.example.userdbapi.exception.PreconditionRequiredException;
 import org.example.userdbapi.hateoas.UserModelAssembler;
+import org.example.userdbapi.service.UserBatchService;
+import org.example.userdbapi.service.UserExportService;
+import org.example.userdbapi.service.UserImportService;
 import org.example.userdbapi.service.UserService;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.net.URI;
-
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -26,22 +46,85 @@ public class UserController {
 
     private final UserService userService;
     private final UserModelAssembler assembler;
+    private final UserExportService userExportService;
+    private final UserBatchService userBatchService;
+    private final UserImportService userImportService;
 
     @GetMapping()
-    public CollectionModel<EntityModel<UserDto>> getAll() {
-        var models = userService.getAllUsers()
-                .stream()
-                .map(assembler::toModel)
-                .toList();
+    public CollectionModel<EntityModel<UserDto>> getAll(
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "sort", required = false) String sort,
+            @RequestParam(name = "direction", required = false) String direction) {
+        var userSort = sortOf(sort);
+        var dir = directionOf(direction);
+
+        var page = userService.getUsersPage(limit, after, userSort, dir);
+        return assembler.toPageModel(page, limit, after, userSort, dir);
+    }
+
+    /** Та же страница без HAL-ссылок: для клиентов, которым важен объём, а не навигация. */
+    @GetMapping(params = "links=false")
+    public UserPage getAllWithoutLinks(
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "sort", required = false) String sort,
+            @RequestParam(name = "direction", required = false) String direction) {
+        return userService.getUsersPage(limit, after, sortOf(sort), directionOf(direction));
+    }
+
+    /**
+     * Поиск для служебных инструментов: фильтры комбинируются через AND, страницы — keyset,
+     * как у списка. name — префикс имени, email — точное совпадение, оба без учёта регистра.
+     */
+    @GetMapping("/search")
+    public UserPage search(
+            @RequestParam(name = "name", required = false) String name,
+            @RequestParam(name = "email", required = false) String email,
+            @RequestParam(name = "minAge", required = false) Integer minAge,
+            @RequestParam(name = "maxAge", required = false) Integer maxAge,
+            @RequestParam(name = "createdFrom", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(name = "createdTo", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "sort", required = false) String sort,
+            @RequestParam(name = "direction", required = false) String direction) {
+        var filter = new UserSearchFilter(name, email, minAge, maxAge, createdFrom, createdTo);
+        return userService.searchUsers(filter, limit, after, sortOf(sort), directionOf(direction));
+    }
 
-        return CollectionModel.of(models,
-                linkTo(methodOn(UserController.class).getAll()).withSelfRel(),
-                linkTo(methodOn(UserController.class).create(null)).withRel("create"));
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export() {
+        StreamingResponseBody body = userExportService::exportUsers;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
+    /**
+     * Strong ETag — версия строки. Если If-None-Match совпал, отвечаем 304 без HAL-ссылок и без тела;
+     * сама карточка при этом берётся из кэша или одним запросом-проекцией.
+     */
     @GetMapping("/{id}")
-    public EntityModel<UserDto> getById(@PathVariable("id") Long id) {
-        return assembler.toModel(userService.getUserByID(id));
+    public ResponseEntity<EntityModel<UserDto>> getById(@PathVariable("id") Long id, WebRequest request) {
+        var dto = userService.getUserByID(id);
+        String etag = etagOf(dto);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(assembler.toModel(dto));
+    }
+
+    @GetMapping(value = "/{id}", params = "links=false")
+    public ResponseEntity<UserDto> getByIdWithoutLinks(@PathVariable("id") Long id, WebRequest request) {
+        var dto = userService.getUserByID(id);
+        String etag = etagOf(dto);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(dto);
     }
 
     @PostMapping()
@@ -52,15 +135,78 @@ public class UserController {
         return ResponseEntity.created(location).body(model);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<UserBatchResultDto> createBatch(@RequestBody List<UserCreateDto> dtos) {
+        return ResponseEntity.ok(userBatchService.createUsers(dtos));
+    }
+
+    /** Карточки по списку id (JSON-массив) одним запросом; без HAL-ссылок, как и ?links=false. */
+    @PostMapping("/lookup")
+    public ResponseEntity<UserLookupResultDto> lookup(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(userService.lookupUsers(ids));
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<UserImportResultDto> importCsv(InputStream csv) {
+        return ResponseEntity.ok(userImportService.importCsv(csv));
+    }
+
     @PutMapping("/{id}")
-    public ResponseEntity<EntityModel<UserDto>> update(@PathVariable("id") Long id, @Valid @RequestBody UserUpdateDto dto) {
-        var updated = userService.updateUser(id, dto);
-        return ResponseEntity.ok(assembler.toModel(updated));
+    public ResponseEntity<EntityModel<UserDto>> update(@PathVariable("id") Long id,
+                                                       @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                       @Valid @RequestBody UserUpdateDto dto) {
+        var updated = userService.updateUser(id, versionOf(ifMatch), dto);
+        return ResponseEntity.ok().eTag(etagOf(updated)).body(assembler.toModel(updated));
+    }
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<EntityModel<UserDto>> patch(@PathVariable("id") Long id,
+                                                      @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                      @Valid @RequestBody UserPatchDto dto) {
+        var updated = userService.patchUser(id, versionOf(ifMatch), dto);
+        return ResponseEntity.ok().eTag(etagOf(updated)).body(assembler.toModel(updated));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> delete(@PathVariable("id") Long id) {
-        userService.deleteUser(id);
+    public ResponseEntity<Void> delete(@PathVariable("id") Long id,
+                                       @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        userService.deleteUser(id, versionOf(ifMatch));
         return ResponseEntity.noContent().build();
     }
+
+    private static String etagOf(UserDto dto) {
+        return "\"" + dto.version() + "\"";
+    }
+
+    // If-Match обязателен: "*" — любая версия (null), иначе ровно один strong ETag из etagOf.
+    // Weak или чужой тег совпасть не может — это 412, как и устаревшая версия
+    private static Long versionOf(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            throw new PreconditionRequiredException("If-Match header is required");
+        }
+        String tag = ifMatch.strip();
+        if (tag.equals("*")) {
+            return null;
+        }
+        if (tag.indexOf(',') >= 0) {
+            throw new BadRequestException("If-Match must contain a single entity tag");
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag, 1, tag.length() - 1, 10);
+            } catch (NumberFormatException ignored) {
+                // не наш тег
+            }
+        }
+        throw new PreconditionFailedException("If-Match does not match: %s".formatted(tag));
+    }
+
+    private static UserSort sortOf(String sort) {
+        return sort == null ? UserSort.ID : UserSort.fromParam(sort);
+    }
+
+    private static Sort.Direction directionOf(String direction) {
+        return direction == null ? Sort.Direction.ASC : Sort.Direction.fromOptionalString(direction)
+                .orElseThrow(() -> new BadRequestException("Unsupported direction: %s".formatted(direction)));
+    }
 }
@@ -0,0 +1,29 @@
+package org.example.userdbapi.dto;
+
+import java.util.List;
+
+/**
+ * Результат пакетного создания: по одному элементу на каждый входной DTO, в том же порядке.
+ */
+public record UserBatchResultDto(
+        int created,
+        int failed,
+        List<Item> items
+) {
+    public enum Status { CREATED, CONFLICT, INVALID }
+
+    public record Item(
+            int index,
+            Status status,
+            UserDto user,
+            String error
+    ) {
+        public static Item created(int index, UserDto user) {
+            return new Item(index, Status.CREATED, user, null);
+        }
+
+        public static Item failed(int index, Status status, String error) {
+            return new Item(index, status, null, error);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.userdbapi.dto;
+
+import org.example.userdbapi.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция keyset-курсора: значения ключей сортировки последней отданной строки.
+ * Клиенту уходит непрозрачной base64url-строкой, чтобы формат можно было менять.
+ */
+public record UserCursor(
+        LocalDateTime createdAt,
+        long id
+) {
+    private static final char SEPARATOR = '|';
+
+    public static UserCursor of(UserDto last, UserSort sort) {
+        return new UserCursor(sort == UserSort.CREATED_AT ? last.createdAt() : null, last.id());
+    }
+
+    public String encode() {
+        String raw = createdAt == null ? Long.toString(id) : createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static UserCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(SEPARATOR);
+            if (sep < 0) return new UserCursor(null, Long.parseLong(raw));
+            return new UserCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor: %s".formatted(token));
+        }
+    }
+}
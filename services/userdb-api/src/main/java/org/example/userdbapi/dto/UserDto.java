@@ -1,11 +1,15 @@
 package org.example.userdbapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.time.LocalDateTime;
 
+/** {@code version} в тело не попадает: клиент видит его только как ETag. */
 public record UserDto(
         Long id,
         String name,
         String email,
         Integer age,
-        LocalDateTime createdAt
+        LocalDateTime createdAt,
+        @JsonIgnore Long version
 ) {}
@@ -0,0 +1,7 @@
+package org.example.userdbapi.dto;
+
+public record UserImportResultDto(
+        long received,
+        long inserted,
+        long skipped
+) {}
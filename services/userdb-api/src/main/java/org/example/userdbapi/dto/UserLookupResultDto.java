@@ -0,0 +1,12 @@
+package org.example.userdbapi.dto;
+
+import java.util.List;
+
+/**
+ * Результат поиска по списку id: найденные пользователи в порядке запроса
+ * (повторы id схлопываются до первого вхождения) и id, которых нет.
+ */
+public record UserLookupResultDto(
+        List<UserDto> users,
+        List<Long> missing
+) {}
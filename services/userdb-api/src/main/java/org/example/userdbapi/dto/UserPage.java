@@ -0,0 +1,16 @@
+package org.example.userdbapi.dto;
+
+import java.util.List;
+
+/**
+ * Одна страница keyset-пагинации: элементы и курсор следующей страницы
+ * ({@code null}, если дальше ничего нет).
+ */
+public record UserPage(
+        List<UserDto> items,
+        String nextCursor
+) {
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.userdbapi.dto;
+
+import jakarta.validation.constraints.*;
+
+/** Частичное обновление: null — поле не меняется. */
+public record UserPatchDto(
+        @Pattern(regexp = ".*\\S.*", message = "must not be blank") @Size(max=255) String name,
+        @Pattern(regexp = ".*\\S.*", message = "must not be blank") @Email @Size(max=255) String email,
+        @Min(0) @Max(150) Integer age
+) {}
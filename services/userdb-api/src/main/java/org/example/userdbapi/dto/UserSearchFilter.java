@@ -0,0 +1,17 @@
+package org.example.userdbapi.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Фильтры поиска пользователей; null — фильтр не задан, заданные объединяются через AND.
+ * {@code namePrefix} и {@code email} сравниваются без учёта регистра,
+ * возраст — включительно с обеих сторон, {@code createdFrom} включительно, {@code createdTo} — нет.
+ */
+public record UserSearchFilter(
+        String namePrefix,
+        String email,
+        Integer minAge,
+        Integer maxAge,
+        LocalDateTime createdFrom,
+        LocalDateTime createdTo
+) {}
@@ -0,0 +1,38 @@
+package org.example.userdbapi.dto;
+
+import org.example.userdbapi.exception.BadRequestException;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Поля, по которым разрешена сортировка списка пользователей.
+ * id всегда добавляется вторым ключом, чтобы порядок (и курсор) был однозначным.
+ * Сортировку по id обслуживает первичный ключ, по created_at — индекс
+ * users_created_at_id_idx на (created_at, id) из V5; новое поле добавлять вместе с индексом.
+ */
+public enum UserSort {
+    ID("id"),
+    CREATED_AT("createdAt");
+
+    private final String property;
+
+    UserSort(String property) {
+        this.property = property;
+    }
+
+    public String property() {
+        return property;
+    }
+
+    public Sort toSort(Sort.Direction direction) {
+        return this == ID
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, property).and(Sort.by(direction, "id"));
+    }
+
+    public static UserSort fromParam(String value) {
+        for (UserSort s : values()) {
+            if (s.property.equalsIgnoreCase(value)) return s;
+        }
+        throw new BadRequestException("Unsupported sort: %s (allowed: id, createdAt)".formatted(value));
+    }
+}
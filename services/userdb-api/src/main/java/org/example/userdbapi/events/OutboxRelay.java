@@ -0,0 +1,98 @@
+package org.example.userdbapi.events;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.userdbapi.model.OutboxEvent;
+import org.example.userdbapi.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Переносит события из outbox в Kafka. Каждый проход в одной транзакции захватывает
+ * свободные шарды (FOR UPDATE SKIP LOCKED), отправляет их неопубликованные события пачкой,
+ * дожидается подтверждения брокера и помечает строки опубликованными.
+ * Реплики делят шарды между собой, так что пропускная способность растёт с их числом,
+ * а события одного пользователя всегда публикует кто-то один и по порядку.
+ * Гарантия at-least-once: при сбое после отправки пачка будет отправлена повторно.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final UserEventProducer userEventProducer;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.outbox.shards-per-poll:4}")
+    private int shardsPerPoll;
+
+    @Value("${app.outbox.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    @Value("${app.outbox.retention:PT24H}")
+    private Duration retention;
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:200}")
+    public void relay() {
+        try {
+            Integer published;
+            do {
+                published = transactionTemplate.execute(status -> relayOnce());
+            } while (published != null && published > 0);
+        } catch (RuntimeException e) {
+            log.error("Outbox relay failed, will retry on next poll: {}", e.toString(), e);
+        }
+    }
+
+    int relayOnce() {
+        List<Integer> shards = outboxEventRepository.lockShards(shardsPerPoll);
+        if (shards.isEmpty()) return 0;
+
+        int total = 0;
+        for (Integer shard : shards) {
+            List<OutboxEvent> rows = outboxEventRepository.findPending(shard, PageRequest.ofSize(batchSize));
+            if (rows.isEmpty()) continue;
+
+            await(userEventProducer.sendAll(rows.stream().map(OutboxEvent::toEvent).toList()));
+            outboxEventRepository.markPublished(rows.stream().map(OutboxEvent::getId).toList(), Instant.now());
+            total += rows.size();
+        }
+        outboxEventRepository.touchShards(shards);
+
+        if (total > 0) log.info("Outbox relay published {} events from shards {}", total, shards);
+        return total;
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.cleanup-interval-ms:60000}")
+    public void cleanup() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deletePublishedBefore(Instant.now().minus(retention)));
+        if (deleted != null && deleted > 0) log.info("Outbox cleanup removed {} published events", deleted);
+    }
+
+    private void await(CompletableFuture<Void> sent) {
+        try {
+            sent.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing outbox batch", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Outbox batch was not acknowledged by Kafka", e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.userdbapi.events;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.userdbapi.config.CacheConfig;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.stereotype.Component;
+
+/**
+ * Сбрасывает локальный кэш пользователей по событиям из user.account, чтобы реплики
+ * не отдавали устаревшие данные после изменений, сделанных другим инстансом.
+ * Каждая реплика должна получить все события, поэтому партиции назначаются вручную, без
+ * consumer group: оффсеты не коммитятся, и рестарты не оставляют за собой осиротевших групп.
+ * Старые события не нужны — после старта чтение с конца (latest).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserCacheInvalidationListener {
+
+    private final CacheManager cacheManager;
+
+    // без group.id контейнер сам переходит на AckMode.MANUAL и ничего не коммитит
+    @KafkaListener(
+            topicPartitions = @TopicPartition(
+                    topic = "${app.kafka.user-topic:user.account}",
+                    partitions = "0-#{${app.kafka.user-topic-partitions:6} - 1}"),
+            properties = {"auto.offset.reset=latest", "enable.auto.commit=false"})
+    public void onUserEvent(UserEvent event) {
+        if (event.getEventType() == UserEvent.Type.USER_CREATED || event.getUserId() == null) return;
+
+        Cache cache = cacheManager.getCache(CacheConfig.USERS);
+        if (cache != null) {
+            cache.evict(event.getUserId());
+            log.debug("Evicted cached user: id={}, eventType={}", event.getUserId(), event.getEventType());
+        }
+    }
+}
@@ -11,7 +11,7 @@ import java.util.UUID;
 @NoArgsConstructor @AllArgsConstructor
 @ToString
 public class UserEvent {
-    public enum Type{USER_CREATED, USER_DELETED}
+    public enum Type{USER_CREATED, USER_UPDATED, USER_DELETED}
 
     private String eventId;
     private Type eventType;
@@ -31,6 +31,17 @@ public class UserEvent {
                 .build();
     }
 
+    public static UserEvent updated(Long userId, String email, String source) {
+        return UserEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .eventType(Type.USER_UPDATED)
+                .userId(userId)
+                .email(email)
+                .source(source)
+                .occurredAt(Instant.now())
+                .build();
+    }
+
     public static UserEvent deleted(Long userId, String email, String source) {
         return UserEvent.builder()
                 .eventId(UUID.randomUUID().toString())
@@ -0,0 +1,40 @@
+package org.example.userdbapi.events;
+
+import lombok.RequiredArgsConstructor;
+import org.example.userdbapi.model.OutboxEvent;
+import org.example.userdbapi.repository.OutboxEventRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Запись событий в outbox. Вызывается только внутри транзакции, меняющей users:
+ * событие фиксируется вместе с данными и не уходит в Kafka, если транзакция откатилась.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserEventOutbox {
+
+    /** Число шардов outbox; совпадает с числом строк в user_event_outbox_shard (V3). */
+    public static final int SHARDS = 16;
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(UserEvent event) {
+        outboxEventRepository.save(OutboxEvent.of(event, shardOf(event.getUserId())));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(List<UserEvent> events) {
+        outboxEventRepository.saveAll(events.stream()
+                .map(e -> OutboxEvent.of(e, shardOf(e.getUserId())))
+                .toList());
+    }
+
+    public static int shardOf(Long userId) {
+        return Math.floorMod(userId, SHARDS);
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 @Slf4j
@@ -37,4 +38,26 @@ public class UserEventProducer {
         });
         return future;
     }
+
+    /**
+     * Отправка пачки событий без построчного info-лога: используется массовыми операциями,
+     * где записи в лог на каждое событие дороже самой отправки.
+     */
+    public CompletableFuture<Void> sendAll(List<UserEvent> events) {
+        log.info("Producing {} Kafka events: topic={}", events.size(), topic);
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[events.size()];
+        for (int i = 0; i < futures.length; i++) {
+            UserEvent event = events.get(i);
+            futures[i] = kafkaTemplate.send(topic, String.valueOf(event.getUserId()), event);
+        }
+
+        return CompletableFuture.allOf(futures).whenComplete((ok, ex) -> {
+            if (ex != null) {
+                log.error("Kafka batch send failed: topic={}, size={}, error={}", topic, futures.length, ex.toString(), ex);
+            } else {
+                log.debug("Kafka batch sent: topic={}, size={}", topic, futures.length);
+            }
+        });
+    }
 }
@@ -0,0 +1,71 @@
+package org.example.userdbapi.events;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Сверяет при старте число партиций user.account с {@code app.kafka.user-topic-partitions}.
+ * {@link UserCacheInvalidationListener} назначает себе партиции по этому числу, и события
+ * из партиций сверх него кэш бы молча не сбрасывали — поэтому расхождение роняет старт.
+ * Проверка идёт после KafkaAdmin, который создаёт топик или добавляет в него партиции, так что
+ * расходиться может только уже существующий топик. Брокер недоступен — только предупреждение,
+ * как у KafkaAdmin.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserTopicPartitionsCheck {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final ConsumerFactory<?, ?> consumerFactory;
+
+    @Value("${app.kafka.user-topic:user.account}")
+    private String topic;
+
+    @Value("${app.kafka.user-topic-partitions:6}")
+    private int partitions;
+
+    @Value("${spring.kafka.listener.auto-startup:true}")
+    private boolean listenerAutoStartup;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void check() {
+        if (!listenerAutoStartup) {
+            return; // слушатель не запущен — сверять не для кого, а без брокера ждали бы таймаута
+        }
+        Properties overrides = new Properties();
+        // метаданные не должны создавать топик с партициями брокера по умолчанию
+        overrides.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, "false");
+        List<PartitionInfo> actual;
+        try (Consumer<?, ?> consumer = consumerFactory.createConsumer(null, null, "-partitions-check", overrides)) {
+            actual = consumer.partitionsFor(topic, TIMEOUT);
+        } catch (KafkaException e) {
+            log.warn("Could not check partitions of topic {}: {}", topic, e.toString());
+            return;
+        }
+        if (actual == null || actual.isEmpty()) {
+            log.info("Topic {} does not exist, partitions check skipped", topic);
+            return;
+        }
+        if (actual.size() != partitions) {
+            throw new IllegalStateException(
+                    "Topic %s has %d partitions, but app.kafka.user-topic-partitions is %d: cache invalidation would miss events"
+                            .formatted(topic, actual.size(), partitions));
+        }
+        log.info("Topic {} partitions checked: {}", topic, partitions);
+    }
+}
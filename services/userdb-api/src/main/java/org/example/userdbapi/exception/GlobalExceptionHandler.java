@@ -32,6 +32,33 @@ public class GlobalExceptionHandler {
                 .body(new ErrorPayload(status.value(), status.getReasonPhrase(), ex.getMessage(), req.getRequestURI()));
     }
 
+    // 412 - If-Match does not match current version
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorPayload> handlePreconditionFailed(PreconditionFailedException ex, HttpServletRequest req) {
+        var status = HttpStatus.PRECONDITION_FAILED;
+        warn(req, ex.getMessage());
+        return ResponseEntity.status(status)
+                .body(new ErrorPayload(status.value(), status.getReasonPhrase(), ex.getMessage(), req.getRequestURI()));
+    }
+
+    // 428 - write without If-Match
+    @ExceptionHandler(PreconditionRequiredException.class)
+    public ResponseEntity<ErrorPayload> handlePreconditionRequired(PreconditionRequiredException ex, HttpServletRequest req) {
+        var status = HttpStatus.PRECONDITION_REQUIRED;
+        warn(req, ex.getMessage());
+        return ResponseEntity.status(status)
+                .body(new ErrorPayload(status.value(), status.getReasonPhrase(), ex.getMessage(), req.getRequestURI()));
+    }
+
+    // 400 - bad request parameters (limit, cursor, sort)
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ErrorPayload> handleBadRequest(BadRequestException ex, HttpServletRequest req) {
+        var status = HttpStatus.BAD_REQUEST;
+        warn(req, ex.getMessage());
+        return ResponseEntity.status(status)
+                .body(new ErrorPayload(status.value(), status.getReasonPhrase(), ex.getMessage(), req.getRequestURI()));
+    }
+
     // 400 - valid errors
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorPayload> handleValidation(MethodArgumentNotValidException ex, HttpServletRequest req) {
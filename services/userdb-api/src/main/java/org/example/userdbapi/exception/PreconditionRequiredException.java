@@ -0,0 +1,7 @@
+package org.example.userdbapi.exception;
+
+public class PreconditionRequiredException extends RuntimeException {
+    public PreconditionRequiredException(String message) {
+        super(message);
+    }
+}
@@ -3,26 +3,108 @@ package org.example.userdbapi.hateoas;
 import lombok.extern.slf4j.Slf4j;
 import org.example.userdbapi.controller.UserController;
 import org.example.userdbapi.dto.UserDto;
+import org.example.userdbapi.dto.UserPage;
+import org.example.userdbapi.dto.UserSort;
+import org.springframework.data.domain.Sort;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
+/**
+ * Ссылки пользователя строятся из шаблонов, разрешённых через {@code methodOn} один раз при
+ * старте: на запрос вычисляется только базовый адрес (схема, хост, context path), на строку —
+ * подстановка id. Ссылки страницы (self, next, create) по-прежнему идут через {@code linkTo}:
+ * они строятся раз на запрос.
+ */
 @Slf4j
 @Component
 public class UserModelAssembler implements RepresentationModelAssembler<UserDto, EntityModel<UserDto>> {
 
+    private static final LinkRelation ALL_USERS = LinkRelation.of("all-users");
+    private static final LinkRelation UPDATE = LinkRelation.of("update");
+    private static final LinkRelation DELETE = LinkRelation.of("delete");
+    private static final String ID_VARIABLE = "{id}";
+
+    // getById, update и delete смотрят на один путь /{id}: один шаблон на все три ссылки
+    private final String itemPrefix;
+    private final String itemSuffix;
+    private final String allUsersTemplate;
+
+    public UserModelAssembler() {
+        String item = pathOf(linkTo(methodOn(UserController.class).getById(null, null)).withSelfRel());
+        int id = item.indexOf(ID_VARIABLE);
+        if (id < 0) {
+            throw new IllegalStateException("No {id} in user link template: " + item);
+        }
+        this.itemPrefix = item.substring(0, id);
+        this.itemSuffix = item.substring(id + ID_VARIABLE.length());
+        this.allUsersTemplate = pathOf(linkTo(methodOn(UserController.class).getAll(null, null, null, null))
+                .withRel(ALL_USERS));
+    }
+
     @Override
     public EntityModel<UserDto> toModel(UserDto dto) {
-        var model = EntityModel.of(dto,
-                linkTo(methodOn(UserController.class).getById(dto.id())).withSelfRel(),
-                linkTo(methodOn(UserController.class).getAll()).withRel("all-users"),
-                linkTo(methodOn(UserController.class).update(dto.id(), null)).withRel("update"),
-                linkTo(methodOn(UserController.class).delete(dto.id())).withRel("delete"));
-
-        log.debug("Built HATEOAS links for user: {}", dto.id());
-        return model;
+        String base = currentBase();
+        return toModel(dto, base, Link.of(base + allUsersTemplate, ALL_USERS));
+    }
+
+    private EntityModel<UserDto> toModel(UserDto dto, String base, Link allUsers) {
+        String href = base + itemPrefix + dto.id() + itemSuffix;
+        return EntityModel.of(dto,
+                Link.of(href, IanaLinkRelations.SELF),
+                allUsers,
+                Link.of(href, UPDATE),
+                Link.of(href, DELETE));
+    }
+
+    public CollectionModel<EntityModel<UserDto>> toPageModel(UserPage page, Integer limit, String after,
+                                                             UserSort sort, Sort.Direction direction) {
+        String base = currentBase();
+        Link allUsers = Link.of(base + allUsersTemplate, ALL_USERS);
+        List<EntityModel<UserDto>> models = page.items()
+                .stream()
+                .map(dto -> toModel(dto, base, allUsers))
+                .toList();
+
+        String sortParam = sort.property();
+        String directionParam = direction.name().toLowerCase();
+
+        var collection = CollectionModel.of(models,
+                linkTo(methodOn(UserController.class).getAll(limit, after, sortParam, directionParam)).withSelfRel(),
+                linkTo(methodOn(UserController.class).create(null)).withRel("create"));
+
+        if (page.hasNext()) {
+            collection.add(linkTo(methodOn(UserController.class)
+                    .getAll(limit, page.nextCursor(), sortParam, directionParam)).withRel(IanaLinkRelations.NEXT));
+        }
+        log.debug("Built HATEOAS links for {} users", models.size());
+        return collection;
+    }
+
+    // та же база, что у linkTo: схема, хост и порт запроса (с учётом X-Forwarded-*) и servlet mapping;
+    // вне запроса linkTo тоже отдаёт относительные ссылки
+    private static String currentBase() {
+        if (RequestContextHolder.getRequestAttributes() == null) {
+            return "";
+        }
+        return ServletUriComponentsBuilder.fromCurrentServletMapping().toUriString();
+    }
+
+    // вне запроса linkTo отдаёт путь без хоста; если бин всё же создан в запросе — срезаем схему и хост
+    private static String pathOf(Link link) {
+        String href = link.getHref();
+        int scheme = href.indexOf("://");
+        return scheme < 0 ? href : href.substring(href.indexOf('/', scheme + 3));
     }
 }
@@ -0,0 +1,72 @@
+package org.example.userdbapi.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.example.userdbapi.events.UserEvent;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "user_event_outbox")
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class OutboxEvent {
+
+    // pooled-блоки: порядок публикации задаёт relay_order, а не id (V8)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_event_outbox_seq")
+    @SequenceGenerator(name = "user_event_outbox_seq", sequenceName = "user_event_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    // default nextval вычисляет сама база при INSERT, Hibernate колонку не пишет
+    @Column(name = "relay_order", insertable = false, updatable = false)
+    private Long relayOrder;
+
+    @Column(nullable = false)
+    private Integer shard;
+
+    @Column(name = "event_id", nullable = false, length = 36)
+    private String eventId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 32)
+    private UserEvent.Type eventType;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Column(nullable = false, length = 64)
+    private String source;
+
+    @Column(name = "occurred_at", nullable = false)
+    private Instant occurredAt;
+
+    @Column(name = "published_at")
+    private Instant publishedAt;
+
+    public static OutboxEvent of(UserEvent event, int shard) {
+        return OutboxEvent.builder()
+                .shard(shard)
+                .eventId(event.getEventId())
+                .eventType(event.getEventType())
+                .userId(event.getUserId())
+                .email(event.getEmail())
+                .source(event.getSource())
+                .occurredAt(event.getOccurredAt())
+                .build();
+    }
+
+    public UserEvent toEvent() {
+        return UserEvent.builder()
+                .eventId(eventId)
+                .eventType(eventType)
+                .userId(userId)
+                .email(email)
+                .source(source)
+                .occurredAt(occurredAt)
+                .build();
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.userdbapi.repository;
+
+import org.example.userdbapi.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Захват до {@code limit} шардов, которые сейчас не обрабатывает другая реплика.
+     * Давно не обходившиеся шарды идут первыми. Блокировка держится до конца транзакции.
+     */
+    @Query(value = """
+            select shard from user_event_outbox_shard
+            order by relayed_at nulls first, shard
+            limit :limit
+            for update skip locked
+            """, nativeQuery = true)
+    List<Integer> lockShards(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "update user_event_outbox_shard set relayed_at = now() where shard in (:shards)", nativeQuery = true)
+    void touchShards(@Param("shards") Collection<Integer> shards);
+
+    /** Неопубликованные события шарда в порядке записи (relay_order, V8), а не id. */
+    @Query("select e from OutboxEvent e where e.shard = :shard and e.publishedAt is null order by e.relayOrder")
+    List<OutboxEvent> findPending(@Param("shard") int shard, Pageable page);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.publishedAt = :at where e.id in :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("at") Instant at);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") Instant before);
+}
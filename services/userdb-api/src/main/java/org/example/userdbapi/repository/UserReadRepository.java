@@ -0,0 +1,18 @@
+package org.example.userdbapi.repository;
+
+import org.example.userdbapi.dto.UserDto;
+import org.example.userdbapi.model.User;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/** Чтение пользователей сразу в {@link UserDto}, без управляемых сущностей. */
+public interface UserReadRepository {
+
+    /**
+     * Первые {@code limit} строк, подходящих под {@code spec}, в порядке {@code sort}.
+     * Строки не попадают в persistence context: ни снапшотов для dirty checking, ни маппинга.
+     */
+    List<UserDto> findDtos(Specification<User> spec, Sort sort, int limit);
+}
@@ -0,0 +1,42 @@
+package org.example.userdbapi.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.example.userdbapi.dto.UserDto;
+import org.example.userdbapi.model.User;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+
+/** Те же Specification, что и для сущностей, но select — конструктор UserDto. */
+@RequiredArgsConstructor
+class UserReadRepositoryImpl implements UserReadRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<UserDto> findDtos(Specification<User> spec, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserDto> query = cb.createQuery(UserDto.class);
+        Root<User> root = query.from(User.class);
+        query.select(cb.construct(UserDto.class,
+                root.get("id"), root.get("name"), root.get("email"), root.get("age"), root.get("createdAt"),
+                root.get("version")));
+
+        Predicate where = spec.toPredicate(root, query, cb);
+        if (where != null) {
+            query.where(where);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -1,11 +1,56 @@
 package org.example.userdbapi.repository;
 
+import jakarta.persistence.QueryHint;
+import org.example.userdbapi.dto.UserDto;
 import org.example.userdbapi.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User>,
+        UserReadRepository, UserWriteRepository {
     boolean existsByEmail(String email);
+
+    /** Какие из переданных email уже заняты — одним запросом на весь батч. */
+    @Query("select u.email from User u where u.email in :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /** Карточка пользователя для чтения: сразу UserDto, сущность не создаётся. */
+    @Query("select new org.example.userdbapi.dto.UserDto(u.id, u.name, u.email, u.age, u.createdAt, u.version)"
+            + " from User u where u.id = :id")
+    Optional<UserDto> findDtoById(@Param("id") Long id);
+
+    /** Пачка карточек по id одним запросом; порядок не гарантирован, отсутствующих id просто нет. */
+    @Query("select new org.example.userdbapi.dto.UserDto(u.id, u.name, u.email, u.age, u.createdAt, u.version)"
+            + " from User u where u.id in :ids")
+    List<UserDto> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Серверный курсор по всей таблице для выгрузки: драйвер забирает строки порциями
+     * по fetch size (нужна открытая транзакция). Строки сразу становятся UserDto, поэтому
+     * persistence context не растёт. Стрим обязательно закрывать.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("select new org.example.userdbapi.dto.UserDto(u.id, u.name, u.email, u.age, u.createdAt, u.version)"
+            + " from User u order by u.id")
+    Stream<UserDto> streamAllForExport();
 }
@@ -0,0 +1,81 @@
+package org.example.userdbapi.repository;
+
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.example.userdbapi.dto.UserCursor;
+import org.example.userdbapi.dto.UserSearchFilter;
+import org.example.userdbapi.dto.UserSort;
+import org.example.userdbapi.model.User;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    /**
+     * Keyset-условие "строго после курсора" в заданном порядке.
+     * Для createdAt раскрывается в {@code (created_at, id) > (:ts, :id)}, чтобы одинаковые
+     * метки времени не терялись и не дублировались между страницами.
+     */
+    public static Specification<User> after(UserCursor cursor, UserSort sort, Sort.Direction direction) {
+        return (root, query, cb) -> {
+            if (cursor == null) return null;
+
+            Path<Long> id = root.get("id");
+            boolean asc = direction.isAscending();
+            if (sort == UserSort.ID) {
+                return asc ? cb.greaterThan(id, cursor.id()) : cb.lessThan(id, cursor.id());
+            }
+
+            Path<LocalDateTime> createdAt = root.get("createdAt");
+            LocalDateTime ts = cursor.createdAt();
+            return asc
+                    ? cb.or(cb.greaterThan(createdAt, ts),
+                            cb.and(cb.equal(createdAt, ts), cb.greaterThan(id, cursor.id())))
+                    : cb.or(cb.lessThan(createdAt, ts),
+                            cb.and(cb.equal(createdAt, ts), cb.lessThan(id, cursor.id())));
+        };
+    }
+
+    /**
+     * Фильтры поиска в форме, которую берут индексы из V5: {@code lower(name) like 'p%'},
+     * {@code lower(email) = ?} и диапазон по created_at. Без фильтров — null (все строки).
+     */
+    public static Specification<User> matching(UserSearchFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> where = new ArrayList<>();
+            if (filter.namePrefix() != null) {
+                where.add(cb.like(cb.lower(root.get("name")),
+                        escapeLike(filter.namePrefix().toLowerCase(Locale.ROOT)) + "%", '\\'));
+            }
+            if (filter.email() != null) {
+                where.add(cb.equal(cb.lower(root.get("email")), filter.email().toLowerCase(Locale.ROOT)));
+            }
+            if (filter.minAge() != null) {
+                where.add(cb.greaterThanOrEqualTo(root.get("age"), filter.minAge()));
+            }
+            if (filter.maxAge() != null) {
+                where.add(cb.lessThanOrEqualTo(root.get("age"), filter.maxAge()));
+            }
+            if (filter.createdFrom() != null) {
+                where.add(cb.greaterThanOrEqualTo(root.get("createdAt"), filter.createdFrom()));
+            }
+            if (filter.createdTo() != null) {
+                where.add(cb.lessThan(root.get("createdAt"), filter.createdTo()));
+            }
+            return where.isEmpty() ? null : cb.and(where.toArray(Predicate[]::new));
+        };
+    }
+
+    // % и _ из ввода — обычные символы, а не шаблон
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.userdbapi.repository;
+
+import org.example.userdbapi.dto.UserDto;
+
+import java.util.Optional;
+
+/**
+ * Изменение пользователей одним SQL-выражением, без предварительного SELECT сущности.
+ * Занятый email не проверяется заранее: его ловит уникальный индекс, и нарушение
+ * приходит как {@link org.springframework.dao.DuplicateKeyException}.
+ */
+public interface UserWriteRepository {
+
+    /** Строка после изменения и признак того, что что-то действительно поменялось. */
+    record UserChange(UserDto user, boolean changed) {}
+
+    /**
+     * Пишет только непустые аргументы и увеличивает version; если значения совпадают с текущими,
+     * строка не трогается. {@code expectedVersion} — версия из If-Match, null — любая.
+     * Если версия не совпала, возвращается текущая строка с {@code changed = false}.
+     *
+     * @return пусто, если пользователя нет
+     */
+    Optional<UserChange> updateReturning(Long id, Long expectedVersion, String name, String email, Integer age);
+
+    /**
+     * Удаляет строку, если её версия равна {@code expectedVersion} (null — любая).
+     *
+     * @return удалённая строка ({@code changed = true}) или текущая, если версия не совпала;
+     *         пусто, если пользователя нет
+     */
+    Optional<UserChange> deleteReturning(Long id, Long expectedVersion);
+}
@@ -0,0 +1,68 @@
+package org.example.userdbapi.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.userdbapi.dto.UserDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+class UserWriteRepositoryImpl implements UserWriteRepository {
+
+    // cur берёт строку под блокировку и видит её до изменения: если upd ничего не обновил
+    // (значения те же или версия не та), отдаём текущую строку с changed = false — и всё за один round trip
+    private static final String UPDATE_RETURNING = """
+            with cur as (
+                select id, name, email, age, created_at, version from users where id = ? for update
+            ),
+            upd as (
+                update users u
+                set name = coalesce(?, cur.name), email = coalesce(?, cur.email), age = coalesce(?, cur.age),
+                    version = cur.version + 1
+                from cur
+                where u.id = cur.id
+                  and cur.version = coalesce(?, cur.version)
+                  and (cur.name, cur.email, cur.age)
+                      is distinct from (coalesce(?, cur.name), coalesce(?, cur.email), coalesce(?, cur.age))
+                returning u.id, u.name, u.email, u.age, u.created_at, u.version
+            )
+            select id, name, email, age, created_at, version, true as changed from upd
+            union all
+            select id, name, email, age, created_at, version, false from cur where not exists (select 1 from upd)
+            """;
+
+    private static final String DELETE_RETURNING = """
+            with cur as (
+                select id, name, email, age, created_at, version from users where id = ? for update
+            ),
+            del as (
+                delete from users u using cur
+                where u.id = cur.id and cur.version = coalesce(?, cur.version)
+                returning u.id
+            )
+            select id, name, email, age, created_at, version, exists (select 1 from del) as changed from cur
+            """;
+
+    private static final RowMapper<UserChange> CHANGE = (rs, n) -> new UserChange(
+            new UserDto(rs.getLong("id"), rs.getString("name"), rs.getString("email"), rs.getInt("age"),
+                    rs.getObject("created_at", LocalDateTime.class), rs.getLong("version")),
+            rs.getBoolean("changed"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<UserChange> updateReturning(Long id, Long expectedVersion, String name, String email, Integer age) {
+        return jdbcTemplate.query(UPDATE_RETURNING, CHANGE, id, name, email, age, expectedVersion, name, email, age)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public Optional<UserChange> deleteReturning(Long id, Long expectedVersion) {
+        return jdbcTemplate.query(DELETE_RETURNING, CHANGE, id, expectedVersion)
+                .stream()
+                .findFirst();
+    }
+}
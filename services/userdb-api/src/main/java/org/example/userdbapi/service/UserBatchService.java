@@ -0,0 +1,110 @@
+package org.example.userdbapi.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.userdbapi.dto.UserBatchResultDto;
+import org.example.userdbapi.dto.UserBatchResultDto.Item;
+import org.example.userdbapi.dto.UserBatchResultDto.Status;
+import org.example.userdbapi.dto.UserCreateDto;
+import org.example.userdbapi.events.UserEvent;
+import org.example.userdbapi.events.UserEventOutbox;
+import org.example.userdbapi.exception.BadRequestException;
+import org.example.userdbapi.mapper.UserMapper;
+import org.example.userdbapi.model.User;
+import org.example.userdbapi.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Пакетное создание пользователей: одна проверка email на весь батч и JDBC-батчи INSERT-ов
+ * (id берутся блоками из users_seq). Невалидные и конфликтующие элементы не валят весь
+ * запрос, а возвращаются со своим статусом.
+ */
+@Slf4j
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class UserBatchService {
+
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final UserEventOutbox userEventOutbox;
+    private final Validator validator;
+
+    @Value("${app.users.batch.max-size:5000}")
+    private int maxBatchSize;
+
+    public UserBatchResultDto createUsers(List<UserCreateDto> dtos) {
+        if (dtos == null || dtos.isEmpty()) {
+            throw new BadRequestException("Batch must not be empty");
+        }
+        if (dtos.size() > maxBatchSize) {
+            throw new BadRequestException("Batch size %d exceeds limit %d".formatted(dtos.size(), maxBatchSize));
+        }
+
+        Item[] items = new Item[dtos.size()];
+
+        // 1) валидация и дубликаты внутри самого батча
+        Map<String, Integer> indexByEmail = new LinkedHashMap<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            UserCreateDto dto = dtos.get(i);
+            String error = validate(dto);
+            if (error != null) {
+                items[i] = Item.failed(i, Status.INVALID, error);
+            } else if (indexByEmail.putIfAbsent(dto.email(), i) != null) {
+                items[i] = Item.failed(i, Status.CONFLICT, "Duplicate email in batch: %s".formatted(dto.email()));
+            }
+        }
+
+        // 2) один запрос на занятые email
+        Set<String> existing = indexByEmail.isEmpty()
+                ? Set.of()
+                : userRepository.findExistingEmails(indexByEmail.keySet());
+
+        List<Integer> indexes = new ArrayList<>();
+        List<User> toSave = new ArrayList<>();
+        indexByEmail.forEach((email, i) -> {
+            if (existing.contains(email)) {
+                items[i] = Item.failed(i, Status.CONFLICT, "Email already exists: %s".formatted(email));
+            } else {
+                indexes.add(i);
+                toSave.add(userMapper.toEntity(dtos.get(i)));
+            }
+        });
+
+        // 3) INSERT-ы уходят батчами по hibernate.jdbc.batch_size при flush
+        List<User> saved = userRepository.saveAll(toSave);
+        List<UserEvent> events = new ArrayList<>(saved.size());
+        for (int k = 0; k < saved.size(); k++) {
+            User u = saved.get(k);
+            items[indexes.get(k)] = Item.created(indexes.get(k), userMapper.toDto(u));
+            events.add(UserEvent.created(u.getId(), u.getEmail(), "userdb-api"));
+        }
+        userEventOutbox.appendAll(events);
+
+        int created = saved.size();
+        log.info("Batch create: requested={}, created={}, failed={}", dtos.size(), created, dtos.size() - created);
+        return new UserBatchResultDto(created, dtos.size() - created, Arrays.asList(items));
+    }
+
+    private String validate(UserCreateDto dto) {
+        if (dto == null) return "Item must not be null";
+        Set<ConstraintViolation<UserCreateDto>> violations = validator.validate(dto);
+        if (violations.isEmpty()) return null;
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+}
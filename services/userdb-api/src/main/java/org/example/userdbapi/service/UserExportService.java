@@ -0,0 +1,51 @@
+package org.example.userdbapi.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.userdbapi.dto.UserDto;
+import org.example.userdbapi.repository.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая выгрузка всей таблицы users в NDJSON (одна JSON-строка на пользователя).
+ * Память не зависит от числа строк: курсор читает порциями, строки сразу приходят
+ * как UserDto и в persistence context не попадают.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserExportService {
+
+    private static final int FLUSH_EVERY = 1000;
+
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public long exportUsers(OutputStream out) throws IOException {
+        long count = 0;
+        // генератор не закрывает out: им управляет контейнер
+        try (Stream<UserDto> users = userRepository.streamAllForExport();
+             JsonGenerator gen = objectMapper.getFactory().createGenerator(out)
+                     .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            gen.setRootValueSeparator(null);
+
+            for (Iterator<UserDto> it = users.iterator(); it.hasNext(); ) {
+                gen.writeObject(it.next());
+                gen.writeRaw('\n');
+
+                if (++count % FLUSH_EVERY == 0) gen.flush();
+            }
+        }
+        log.info("Exported {} users as NDJSON", count);
+        return count;
+    }
+}
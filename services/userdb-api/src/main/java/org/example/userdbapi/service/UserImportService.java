@@ -0,0 +1,123 @@
+package org.example.userdbapi.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.userdbapi.dto.UserImportResultDto;
+import org.example.userdbapi.events.UserEventOutbox;
+import org.example.userdbapi.exception.BadRequestException;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Массовый импорт пользователей из CSV ({@code name,email,age} с заголовком).
+ * Поток запроса идёт напрямую в COPY FROM STDIN во временную staging-таблицу, затем
+ * одним INSERT ... SELECT переносится в users: невалидные строки и дубликаты email
+ * (в файле и в базе) пропускаются. USER_CREATED для вставленных строк пишутся в outbox
+ * тем же запросом. Файл целиком нигде не буферизуется.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserImportService {
+
+    private static final String CREATE_STAGING = """
+            create temp table users_import (name text, email text, age text) on commit drop
+            """;
+
+    private static final String COPY_IN = """
+            copy users_import (name, email, age) from stdin with (format csv, header true)
+            """;
+
+    /**
+     * Шаг users_seq (V2) и user_event_outbox_seq (V8), allocationSize в User и OutboxEvent:
+     * одно nextval — блок из стольких id.
+     */
+    private static final int ID_BLOCK = 50;
+
+    // nextval — верхняя граница pooled-блока, как у Hibernate: одно nextval на каждые ID_BLOCK строк,
+    // они получают id hi - ID_BLOCK + 1 .. hi. С блоками Hibernate пересечений нет
+    private static final String MERGE = """
+            with src as (
+            select s.name, s.email, s.age, row_number() over (order by s.email) - 1 as n
+            from (
+                select distinct on (email) btrim(name) as name, btrim(email) as email, btrim(age) as age
+                from users_import
+                where btrim(name) <> '' and length(btrim(name)) <= 255
+                  and btrim(email) ~ '^[^@\\s]+@[^@\\s]+$' and length(btrim(email)) <= 255
+                  and btrim(age) ~ '^[0-9]{1,3}$' and btrim(age)::int <= 150
+                order by email
+            ) s
+            ),
+            blocks as (
+            select first_n, nextval('users_seq') as hi
+            from generate_series(0, (select count(*) from src) - 1, %1$d) first_n
+            ),
+            inserted as (
+            insert into users (id, name, email, age, created_at)
+            select b.hi - %1$d + 1 + (s.n - b.first_n), s.name, s.email, s.age::int, localtimestamp
+            from src s
+            join blocks b on b.first_n = s.n / %1$d * %1$d
+            on conflict (email) do nothing
+            returning id, email
+            ),
+            created as (
+            select id, email, row_number() over (order by id) - 1 as n
+            from inserted
+            ),
+            event_blocks as (
+            select first_n, nextval('user_event_outbox_seq') as hi
+            from generate_series(0, (select count(*) from created) - 1, %1$d) first_n
+            )
+            insert into user_event_outbox (id, shard, event_id, event_type, user_id, email, source, occurred_at)
+            select b.hi - %1$d + 1 + (c.n - b.first_n), mod(c.id, %2$d), gen_random_uuid()::text, 'USER_CREATED',
+                   c.id, c.email, 'userdb-api', now()
+            from created c
+            join event_blocks b on b.first_n = c.n / %1$d * %1$d
+            order by c.id
+            """.formatted(ID_BLOCK, UserEventOutbox.SHARDS);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public UserImportResultDto importCsv(InputStream csv) {
+        return jdbcTemplate.execute((ConnectionCallback<UserImportResultDto>) con -> doImport(con, csv));
+    }
+
+    private UserImportResultDto doImport(Connection con, InputStream csv) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute(CREATE_STAGING);
+        }
+
+        long received;
+        try {
+            received = con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_IN, csv);
+        } catch (SQLException e) {
+            // 22xxx - data exception: битый CSV, неверное число колонок и т.п.
+            if (e.getSQLState() != null && e.getSQLState().startsWith("22")) {
+                throw new BadRequestException("Malformed CSV: %s".formatted(e.getMessage()));
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("CSV import: copied {} rows into staging", received);
+
+        long inserted;
+        try (Statement st = con.createStatement()) {
+            inserted = st.executeLargeUpdate(MERGE);
+        }
+
+        log.info("CSV import done: received={}, inserted={}, skipped={}", received, inserted, received - inserted);
+        return new UserImportResultDto(received, inserted, received - inserted);
+    }
+}
@@ -2,20 +2,43 @@ package org.example.userdbapi.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.userdbapi.config.CacheConfig;
 import org.example.userdbapi.dto.UserCreateDto;
+import org.example.userdbapi.dto.UserCursor;
 import org.example.userdbapi.dto.UserDto;
+import org.example.userdbapi.dto.UserLookupResultDto;
+import org.example.userdbapi.dto.UserPage;
+import org.example.userdbapi.dto.UserPatchDto;
+import org.example.userdbapi.dto.UserSearchFilter;
+import org.example.userdbapi.dto.UserSort;
 import org.example.userdbapi.dto.UserUpdateDto;
 import org.example.userdbapi.events.UserEvent;
-import org.example.userdbapi.events.UserEventProducer;
+import org.example.userdbapi.events.UserEventOutbox;
+import org.example.userdbapi.exception.BadRequestException;
 import org.example.userdbapi.exception.ConflictException;
 import org.example.userdbapi.exception.NotFoundException;
+import org.example.userdbapi.exception.PreconditionFailedException;
 import org.example.userdbapi.mapper.UserMapper;
 import org.example.userdbapi.model.User;
 import org.example.userdbapi.repository.UserRepository;
+import org.example.userdbapi.repository.UserWriteRepository;
+import org.example.userdbapi.repository.UserSpecifications;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -25,23 +48,116 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final UserMapper userMapper;                 // <— теперь бин, а не static-утилита
-    private final UserEventProducer userEventProducer;   // <— продьюсер событий
+    private final UserEventOutbox userEventOutbox;       // <— события уходят в Kafka через outbox
 
+    @Value("${app.users.page.default-limit:50}")
+    private int defaultPageLimit;
+
+    @Value("${app.users.page.max-limit:500}")
+    private int maxPageLimit;
+
+    @Value("${app.users.lookup.max-ids:500}")
+    private int maxLookupIds;
+
+    /**
+     * Keyset-страница пользователей: читает не больше {@code limit + 1} строк,
+     * лишняя строка только сообщает, что есть следующая страница.
+     * Выгрузка всей таблицы одним запросом больше не поддерживается.
+     * Строки читаются сразу в UserDto, как и в остальных методах чтения.
+     */
     @Transactional(readOnly = true)
-    public List<UserDto> getAllUsers() {
-        var list = userRepository.findAll()
-                .stream()
-                .map(userMapper::toDto)
-                .toList();
-        log.info("Fetched {} users", list.size());
-        return list;
+    public UserPage getUsersPage(Integer limit, String after, UserSort sort, Sort.Direction direction) {
+        return keysetPage(null, limit, after, sort, direction);
     }
 
+    /**
+     * Поиск по фильтрам — те же keyset-страницы и те же курсоры, что у {@link #getUsersPage}:
+     * offset-пагинации нет и здесь. Курсор годится только с теми же фильтрами и сортировкой.
+     */
+    @Transactional(readOnly = true)
+    public UserPage searchUsers(UserSearchFilter filter, Integer limit, String after,
+                                UserSort sort, Sort.Direction direction) {
+        if (filter.namePrefix() != null && filter.namePrefix().isBlank()) {
+            throw new BadRequestException("name must not be blank");
+        }
+        if (filter.email() != null && filter.email().isBlank()) {
+            throw new BadRequestException("email must not be blank");
+        }
+        if (filter.minAge() != null && filter.maxAge() != null && filter.minAge() > filter.maxAge()) {
+            throw new BadRequestException("minAge must not exceed maxAge");
+        }
+        if (filter.createdFrom() != null && filter.createdTo() != null
+                && !filter.createdFrom().isBefore(filter.createdTo())) {
+            throw new BadRequestException("createdFrom must be before createdTo");
+        }
+        return keysetPage(UserSpecifications.matching(filter), limit, after, sort, direction);
+    }
+
+    private UserPage keysetPage(Specification<User> filter, Integer limit, String after,
+                                UserSort sort, Sort.Direction direction) {
+        int size = limit == null ? defaultPageLimit : limit;
+        if (size < 1 || size > maxPageLimit) {
+            throw new BadRequestException("limit must be between 1 and %d".formatted(maxPageLimit));
+        }
+
+        UserCursor cursor = after == null ? null : UserCursor.decode(after);
+        if (cursor != null && sort == UserSort.CREATED_AT && cursor.createdAt() == null) {
+            throw new BadRequestException("Cursor does not match sort: %s".formatted(sort.property()));
+        }
+
+        var spec = Specification.where(filter).and(UserSpecifications.after(cursor, sort, direction));
+        var rows = userRepository.findDtos(spec, sort.toSort(direction), size + 1);
+
+        var items = rows.size() > size ? rows.subList(0, size) : rows;
+        String next = rows.size() > size ? UserCursor.of(items.getLast(), sort).encode() : null;
+
+        log.info("Fetched {} users (sort={}, direction={}, hasNext={})", items.size(), sort, direction, next != null);
+        return new UserPage(items, next);
+    }
+
+    /**
+     * Карточки по списку id одним запросом вместо N вызовов GET /{id}.
+     * Порядок ответа — порядок запроса, ненайденные id возвращаются отдельно.
+     */
+    @Transactional(readOnly = true)
+    public UserLookupResultDto lookupUsers(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new BadRequestException("ids must not be empty");
+        }
+        if (ids.size() > maxLookupIds) {
+            throw new BadRequestException("Too many ids: %d, limit %d".formatted(ids.size(), maxLookupIds));
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new BadRequestException("ids must not contain null");
+        }
+
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        Map<Long, UserDto> found = new HashMap<>();
+        for (UserDto dto : userRepository.findDtosByIdIn(requested)) {
+            found.put(dto.id(), dto);
+        }
+
+        List<UserDto> users = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            UserDto dto = found.get(id);
+            if (dto != null) {
+                users.add(dto);
+            } else {
+                missing.add(id);
+            }
+        }
+        log.info("Looked up {} ids: found={}, missing={}", requested.size(), users.size(), missing.size());
+        return new UserLookupResultDto(users, missing);
+    }
+
+    // без sync = true: Caffeine грузил бы значение под монитором ConcurrentHashMap, и JDBC-вызов
+    // закрепил бы виртуальный поток запроса за carrier'ом; редкий двойной промах дешевле
+    @Cacheable(CacheConfig.USERS)
     @Transactional(readOnly = true)
     public UserDto getUserByID(Long id) {
-        User u = userRepository.findById(id)
+        return userRepository.findDtoById(id)
                 .orElseThrow(() -> new NotFoundException("User %d not found".formatted(id)));
-        return userMapper.toDto(u);
     }
 
     public UserDto createUser(UserCreateDto dto) {
@@ -52,7 +168,7 @@ public class UserService {
         User saved = userRepository.save(userMapper.toEntity(dto));
         log.info("Created user id={}, email={}", saved.getId(), saved.getEmail());
 
-        userEventProducer.send(UserEvent.created(
+        userEventOutbox.append(UserEvent.created(
                 saved.getId(),
                 saved.getEmail(),
                 "userdb-api"
@@ -61,31 +177,67 @@ public class UserService {
         return userMapper.toDto(saved);
     }
 
-    public UserDto updateUser(Long id, UserUpdateDto dto) {
-        User u = userRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("User %d not found".formatted(id)));
+    /** {@code expectedVersion} — версия из If-Match; null означает «любая» ({@code If-Match: *}). */
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#p0")
+    public UserDto updateUser(Long id, Long expectedVersion, UserUpdateDto dto) {
+        return applyChange(id, expectedVersion, dto.name(), dto.email(), dto.age());
+    }
 
-        if (!u.getEmail().equals(dto.email()) && userRepository.existsByEmail(dto.email())) {
-            throw new ConflictException("Email already exists: %s".formatted(dto.email()));
+    /** Меняет только переданные поля; если ничего не поменялось, не пишет ни строку, ни событие. */
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#p0")
+    public UserDto patchUser(Long id, Long expectedVersion, UserPatchDto dto) {
+        return applyChange(id, expectedVersion, dto.name(), dto.email(), dto.age());
+    }
+
+    // один UPDATE ... RETURNING вместо findById + existsByEmail + save; занятый email ловит уникальный индекс
+    private UserDto applyChange(Long id, Long expectedVersion, String name, String email, Integer age) {
+        UserWriteRepository.UserChange change;
+        try {
+            change = userRepository.updateReturning(id, expectedVersion, name, email, age)
+                    .orElseThrow(() -> new NotFoundException("User %d not found".formatted(id)));
+        } catch (DuplicateKeyException e) {
+            throw new ConflictException("Email already exists: %s".formatted(email));
         }
 
-        userMapper.applyUpdate(dto, u);
-        User saved = userRepository.save(u);
-        log.info("Updated userid={}", saved.getId());
-        return userMapper.toDto(saved);
+        UserDto updated = change.user();
+        if (!change.changed()) {
+            checkVersion(updated, expectedVersion);
+            log.debug("No-op update skipped: id={}", id);
+            return updated;
+        }
+        log.info("Updated userid={}, version={}", id, updated.version());
+
+        userEventOutbox.append(UserEvent.updated(
+                id,
+                updated.email(),
+                "userdb-api"
+        ));
+
+        return updated;
     }
 
-    public void deleteUser(Long id) {
-        User u = userRepository.findById(id)
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#p0")
+    public void deleteUser(Long id, Long expectedVersion) {
+        UserWriteRepository.UserChange change = userRepository.deleteReturning(id, expectedVersion)
                 .orElseThrow(() -> new NotFoundException("User %d not found".formatted(id)));
+        if (!change.changed()) {
+            checkVersion(change.user(), expectedVersion);
+        }
+        String email = change.user().email();
+        log.info("Deleted userid={}, email={}", id, email);
 
-        userRepository.deleteById(id);
-        log.info("Deleted userid={}, email={}", id, u.getEmail());
-
-        userEventProducer.send(UserEvent.deleted(
+        userEventOutbox.append(UserEvent.deleted(
                 id,
-                u.getEmail(),
+                email,
                 "userdb-api"
         ));
     }
-}
\ No newline at end of file
+
+    // строка не изменилась: либо значения те же, либо чужая версия — второе отдаём как 412
+    private static void checkVersion(UserDto current, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(current.version())) {
+            throw new PreconditionFailedException("User %d has version %d, not %d"
+                    .formatted(current.id(), current.version(), expectedVersion));
+        }
+    }
+}
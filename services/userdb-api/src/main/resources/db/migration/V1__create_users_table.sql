@@ -0,0 +1,9 @@
+-- Исходная схема, которую раньше создавал ddl-auto.
+-- На уже существующих базах не выполняется: Flyway делает baseline на V1.
+create table if not exists users (
+    id         bigint       not null primary key,
+    name       varchar(255) not null,
+    email      varchar(255) not null unique,
+    age        integer      not null,
+    created_at timestamp(6) not null
+);
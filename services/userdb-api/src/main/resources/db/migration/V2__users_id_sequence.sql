@@ -0,0 +1,7 @@
+-- Id выдаются pooled-оптимизатором Hibernate: одно nextval резервирует блок из 50 id,
+-- поэтому INSERT-ы можно отправлять JDBC-батчами (с IDENTITY Hibernate батчинг выключает).
+-- increment by должен совпадать с allocationSize в User.
+create sequence if not exists users_seq start with 1 increment by 50;
+
+-- Новые блоки начинаются строго выше уже выданных identity-колонкой id.
+select setval('users_seq', coalesce(max(id), 0) + 50) from users;
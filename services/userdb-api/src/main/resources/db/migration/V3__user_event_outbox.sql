@@ -0,0 +1,29 @@
+-- Transactional outbox: события пишутся в той же транзакции, что и изменения users,
+-- а в Kafka их переносит OutboxRelay.
+create sequence if not exists user_event_outbox_seq start with 1 increment by 50;
+
+create table user_event_outbox (
+    id           bigint                      not null primary key,
+    shard        integer                     not null,
+    event_id     varchar(36)                 not null,
+    event_type   varchar(32)                 not null,
+    user_id      bigint                      not null,
+    email        varchar(255)                not null,
+    source       varchar(64)                 not null,
+    occurred_at  timestamp(6) with time zone not null,
+    published_at timestamp(6) with time zone
+);
+
+create index user_event_outbox_pending_idx on user_event_outbox (shard, id) where published_at is null;
+create index user_event_outbox_published_idx on user_event_outbox (published_at) where published_at is not null;
+
+-- Шарды = mod(user_id, 16), число должно совпадать с UserEventOutbox.SHARDS.
+-- Реплика relay захватывает строки шардов через FOR UPDATE SKIP LOCKED и публикует
+-- только их события, поэтому порядок событий одного пользователя сохраняется.
+create table user_event_outbox_shard (
+    shard      integer                     not null primary key,
+    relayed_at timestamp(6) with time zone
+);
+
+insert into user_event_outbox_shard (shard)
+select generate_series(0, 15);
@@ -0,0 +1,3 @@
+-- Версия строки для оптимистической блокировки и ETag пользователя.
+-- Растёт на каждом изменении: @Version в User и UPDATE ... RETURNING в UserWriteRepositoryImpl.
+alter table users add column if not exists version bigint not null default 0;
@@ -0,0 +1,13 @@
+-- Индексы под GET /api/users/search и keyset-сортировку по createdAt.
+-- pg_trgm с PG 13 — trusted-расширение: владельцу базы суперпользователь не нужен.
+create extension if not exists pg_trgm;
+
+-- email=: поиск без учёта регистра; уникальный индекс на email остаётся как есть
+create index if not exists users_email_lower_idx on users (lower(email));
+
+-- name=: префикс без учёта регистра (lower(name) like 'abc%'). Триграммы, а не text_pattern_ops:
+-- btree берёт префикс LIKE только из константы, а при generic plan шаблон — параметр
+create index if not exists users_name_trgm_idx on users using gin (lower(name) gin_trgm_ops);
+
+-- sort=createdAt и диапазон createdFrom/createdTo; id — второй ключ keyset-курсора
+create index if not exists users_created_at_id_idx on users (created_at, id);
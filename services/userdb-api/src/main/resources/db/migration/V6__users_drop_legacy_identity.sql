@@ -0,0 +1,4 @@
+-- Базы, созданные ещё ddl-auto, получили id как identity-колонку (baseline пропускает V1).
+-- Id выдаёт только users_seq: identity-default позволил бы вставке без id взять занятый блок.
+-- На базах с V1 identity нет, drop ... if exists ничего не делает.
+alter table users alter column id drop identity if exists;
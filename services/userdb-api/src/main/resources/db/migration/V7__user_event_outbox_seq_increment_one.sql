@@ -0,0 +1,6 @@
+-- Relay публикует шард в порядке id, поэтому id outbox должны расти в порядке записи.
+-- С increment by 50 каждая реплика брала свой блок, и позднее событие пользователя
+-- могло получить меньший id, чем раннее с другой реплики. Шаг 1: nextval берётся после
+-- блокировки строки users, так что события одного пользователя упорядочены по id.
+-- increment by должен совпадать с allocationSize в OutboxEvent.
+alter sequence user_event_outbox_seq increment by 1;
@@ -0,0 +1,27 @@
+-- V7 (шаг 1) упорядочил события по id, но каждая строка outbox стала стоить отдельного
+-- nextval: пакетная запись из UserBatchService делала по SELECT на событие. Возвращаем
+-- pooled-блоки для id, а порядок публикации задаёт relay_order: его default вычисляется
+-- в самом INSERT, без лишнего запроса, и после блокировки строки users, поэтому события
+-- одного пользователя упорядочены по relay_order, с какой бы реплики они ни пришли.
+-- increment by должен совпадать с allocationSize в OutboxEvent.
+alter sequence user_event_outbox_seq increment by 50;
+
+create sequence if not exists user_event_outbox_order_seq;
+
+alter table user_event_outbox add column relay_order bigint;
+
+-- до V8 id и так шли в порядке записи
+update user_event_outbox o
+set relay_order = r.n
+from (select id, row_number() over (order by id) as n from user_event_outbox) r
+where o.id = r.id;
+
+select setval('user_event_outbox_order_seq', coalesce((select max(relay_order) from user_event_outbox), 0) + 1, false);
+
+alter table user_event_outbox
+    alter column relay_order set default nextval('user_event_outbox_order_seq'),
+    alter column relay_order set not null;
+alter sequence user_event_outbox_order_seq owned by user_event_outbox.relay_order;
+
+drop index user_event_outbox_pending_idx;
+create index user_event_outbox_pending_idx on user_event_outbox (shard, relay_order) where published_at is null;
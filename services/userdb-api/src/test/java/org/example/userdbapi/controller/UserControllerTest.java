@@ -3,28 +3,46 @@ package org.example.userdbapi.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.userdbapi.dto.UserCreateDto;
 import org.example.userdbapi.dto.UserDto;
+import org.example.userdbapi.dto.UserLookupResultDto;
+import org.example.userdbapi.dto.UserPage;
+import org.example.userdbapi.dto.UserPatchDto;
+import org.example.userdbapi.dto.UserSearchFilter;
+import org.example.userdbapi.dto.UserSort;
+import org.example.userdbapi.dto.UserUpdateDto;
 import org.example.userdbapi.exception.ConflictException;
 import org.example.userdbapi.exception.GlobalExceptionHandler;
 import org.example.userdbapi.exception.NotFoundException;
+import org.example.userdbapi.exception.PreconditionFailedException;
+import org.example.userdbapi.hateoas.UserModelAssembler;
+import org.example.userdbapi.service.UserBatchService;
+import org.example.userdbapi.service.UserExportService;
+import org.example.userdbapi.service.UserImportService;
 import org.example.userdbapi.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(UserController.class)
-@Import(GlobalExceptionHandler.class)
+@Import({GlobalExceptionHandler.class, UserModelAssembler.class})
 class UserControllerTest {
 
     @Autowired MockMvc mvc;
@@ -33,15 +51,40 @@ class UserControllerTest {
     @MockitoBean
     UserService service;
 
+    @MockitoBean
+    UserExportService exportService;
+
+    @MockitoBean
+    UserBatchService batchService;
+
+    @MockitoBean
+    UserImportService importService;
+
     @Test
     void getById_ok() throws Exception {
-        var dto = new UserDto(1L, "Vanya", "v@m.ru", 20, LocalDateTime.now());
+        var dto = new UserDto(1L, "Vanya", "v@m.ru", 20, LocalDateTime.now(), 0L);
         when(service.getUserByID(1L)).thenReturn(dto);
 
         mvc.perform(get("/api/users/1"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\""))
                 .andExpect(jsonPath("$.id").value(1))
-                .andExpect(jsonPath("$.email").value("v@m.ru"));
+                .andExpect(jsonPath("$.email").value("v@m.ru"))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    void getById_ifNoneMatchSameVersion_notModifiedWithoutBody() throws Exception {
+        when(service.getUserByID(1L)).thenReturn(new UserDto(1L, "Vanya", "v@m.ru", 20, LocalDateTime.now(), 7L));
+
+        mvc.perform(get("/api/users/1").header("If-None-Match", "\"7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"7\""))
+                .andExpect(content().string(""));
+
+        mvc.perform(get("/api/users/1").param("links", "false").header("If-None-Match", "\"6\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7\""));
     }
 
     @Test
@@ -57,28 +100,109 @@ class UserControllerTest {
     @Test
     void getAll_ok() throws Exception {
         var list = List.of(
-                new UserDto(1L, "Alice", "a@a.ru", 20, LocalDateTime.now()),
-                new UserDto(2L, "Bob", "b@b.ru", 30, LocalDateTime.now())
+                new UserDto(1L, "Alice", "a@a.ru", 20, LocalDateTime.now(), 0L),
+                new UserDto(2L, "Bob", "b@b.ru", 30, LocalDateTime.now(), 0L)
         );
 
-        when(service.getAllUsers()).thenReturn(list);
+        when(service.getUsersPage(any(), any(), any(), any())).thenReturn(new UserPage(list, "Mg"));
 
-        mvc.perform(get("/api/users"))
+        mvc.perform(get("/api/users").param("limit", "2"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(2));
+                .andExpect(jsonPath("$._embedded.userDtoList.length()").value(2))
+                .andExpect(jsonPath("$._links.next.href").value(org.hamcrest.Matchers.containsString("after=Mg")));
+    }
+
+    @Test
+    void getAll_withoutLinks_returnsPlainPage() throws Exception {
+        var list = List.of(new UserDto(1L, "Alice", "a@a.ru", 20, LocalDateTime.now(), 0L));
+        when(service.getUsersPage(any(), any(), any(), any())).thenReturn(new UserPage(list, "Mg"));
+
+        mvc.perform(get("/api/users").param("links", "false"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.items[0].email").value("a@a.ru"))
+                .andExpect(jsonPath("$.nextCursor").value("Mg"))
+                .andExpect(jsonPath("$._links").doesNotExist());
+    }
+
+    @Test
+    void getById_withoutLinks_returnsPlainDto() throws Exception {
+        when(service.getUserByID(1L)).thenReturn(new UserDto(1L, "Vanya", "v@m.ru", 20, LocalDateTime.now(), 0L));
+
+        mvc.perform(get("/api/users/1").param("links", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("v@m.ru"))
+                .andExpect(jsonPath("$._links").doesNotExist());
+
+        mvc.perform(get("/api/users/1"))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/api/users/1"))
+                .andExpect(jsonPath("$._links.all-users.href").value("http://localhost/api/users{?limit,after,sort,direction}"));
+    }
+
+    @Test
+    void export_streamsNdjson() throws Exception {
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(0);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        }).when(exportService).exportUsers(any());
+
+        var result = mvc.perform(get("/api/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+    @Test
+    void search_bindsFilters() throws Exception {
+        var filter = new UserSearchFilter("ali", "A@A.RU", 18, 30,
+                LocalDateTime.of(2024, 1, 1, 0, 0), null);
+        when(service.searchUsers(eq(filter), eq(10), isNull(), eq(UserSort.CREATED_AT), eq(Sort.Direction.DESC)))
+                .thenReturn(new UserPage(List.of(new UserDto(1L, "Alice", "a@a.ru", 20, LocalDateTime.now(), 0L)), null));
+
+        mvc.perform(get("/api/users/search")
+                    .param("name", "ali").param("email", "A@A.RU")
+                    .param("minAge", "18").param("maxAge", "30")
+                    .param("createdFrom", "2024-01-01T00:00:00")
+                    .param("limit", "10").param("sort", "createdAt").param("direction", "desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Alice"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void lookup_returnsUsersAndMissing() throws Exception {
+        when(service.lookupUsers(List.of(2L, 9L, 1L))).thenReturn(new UserLookupResultDto(
+                List.of(new UserDto(2L, "Bob", "b@b.ru", 30, LocalDateTime.now(), 0L),
+                        new UserDto(1L, "Alice", "a@a.ru", 20, LocalDateTime.now(), 0L)),
+                List.of(9L)));
+
+        mvc.perform(post("/api/users/lookup")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[2, 9, 1]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].id").value(2))
+                .andExpect(jsonPath("$.users[1].id").value(1))
+                .andExpect(jsonPath("$.missing[0]").value(9))
+                .andExpect(jsonPath("$.users[0]._links").doesNotExist());
     }
 
     @Test
     void create_ok() throws Exception {
         var in = new UserCreateDto("Vanya", "v@mail.ru", 20);
-        var out = new UserDto(100L, "Vanya", "v@mail.ru", 20, LocalDateTime.now());
+        var out = new UserDto(100L, "Vanya", "v@mail.ru", 20, LocalDateTime.now(), 0L);
         when(service.createUser(any())).thenReturn(out);
 
         mvc.perform(post("/api/users")
                     .contentType(MediaType.APPLICATION_JSON)
                     .content(om.writeValueAsString(in)))
                 .andExpect(status().isCreated())
-                .andExpect(header().string("Location", "/api/users/100"));
+                // ссылки строятся от текущего запроса, как и в HAL-ответе
+                .andExpect(header().string("Location", "http://localhost/api/users/100"));
     }
 
     @Test
@@ -107,4 +231,52 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.status").value(400))
                 .andExpect(jsonPath("$.message").exists());
     }
+
+    @Test
+    void patch_passesOnlyGivenFields() throws Exception {
+        when(service.patchUser(eq(1L), eq(3L), eq(new UserPatchDto(null, null, 31))))
+                .thenReturn(new UserDto(1L, "Vanya", "v@m.ru", 31, LocalDateTime.now(), 4L));
+
+        mvc.perform(patch("/api/users/1")
+                    .header("If-Match", "\"3\"")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"age\": 31}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.age").value(31))
+                .andExpect(jsonPath("$.name").value("Vanya"));
+    }
+
+    @Test
+    void patch_blankName_badRequest() throws Exception {
+        mvc.perform(patch("/api/users/1")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"name\": \"  \"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("name")));
+    }
+
+    @Test
+    void writes_withoutIfMatch_preconditionRequired() throws Exception {
+        mvc.perform(put("/api/users/1")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(om.writeValueAsString(new UserUpdateDto("Vanya", "v@m.ru", 20))))
+                .andExpect(status().isPreconditionRequired());
+        mvc.perform(delete("/api/users/1"))
+                .andExpect(status().isPreconditionRequired());
+
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    void delete_ifMatch_staleOrWeak_preconditionFailed() throws Exception {
+        doThrow(new PreconditionFailedException("User 1 has version 5, not 4")).when(service).deleteUser(1L, 4L);
+
+        mvc.perform(delete("/api/users/1").header("If-Match", "\"4\""))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(delete("/api/users/1").header("If-Match", "W/\"5\""))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(delete("/api/users/1").header("If-Match", "*"))
+                .andExpect(status().isNoContent());
+    }
 }
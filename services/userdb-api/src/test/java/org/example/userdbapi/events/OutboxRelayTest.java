@@ -0,0 +1,88 @@
+package org.example.userdbapi.events;
+
+import org.example.userdbapi.model.OutboxEvent;
+import org.example.userdbapi.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    OutboxEventRepository repository;
+
+    @Mock
+    UserEventProducer producer;
+
+    @Mock
+    TransactionTemplate transactionTemplate;
+
+    OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new OutboxRelay(repository, producer, transactionTemplate);
+        ReflectionTestUtils.setField(relay, "batchSize", 100);
+        ReflectionTestUtils.setField(relay, "shardsPerPoll", 4);
+        ReflectionTestUtils.setField(relay, "sendTimeoutMs", 1000L);
+    }
+
+    private static OutboxEvent row(long id, long userId) {
+        OutboxEvent e = OutboxEvent.of(UserEvent.created(userId, "u" + userId + "@a.com", "userdb-api"),
+                UserEventOutbox.shardOf(userId));
+        e.setId(id);
+        return e;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relayOnce_publishesLockedShardsInOrder_andMarksRows() {
+        when(repository.lockShards(4)).thenReturn(List.of(1));
+        when(repository.findPending(eq(1), any(Pageable.class))).thenReturn(List.of(row(10, 1), row(11, 17)));
+        when(producer.sendAll(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        int published = relay.relayOnce();
+
+        assertThat(published).isEqualTo(2);
+        ArgumentCaptor<List<UserEvent>> sent = ArgumentCaptor.forClass(List.class);
+        verify(producer).sendAll(sent.capture());
+        assertThat(sent.getValue()).extracting(UserEvent::getUserId).containsExactly(1L, 17L);
+        verify(repository).markPublished(eq(List.of(10L, 11L)), any());
+        verify(repository).touchShards(List.of(1));
+    }
+
+    @Test
+    void relayOnce_brokerFailure_leavesRowsPending() {
+        when(repository.lockShards(4)).thenReturn(List.of(3));
+        when(repository.findPending(eq(3), any(Pageable.class))).thenReturn(List.of(row(20, 3)));
+        when(producer.sendAll(anyList())).thenReturn(CompletableFuture.failedFuture(new RuntimeException("down")));
+
+        assertThatThrownBy(() -> relay.relayOnce()).isInstanceOf(IllegalStateException.class);
+
+        verify(repository, never()).markPublished(any(), any());
+    }
+
+    @Test
+    void relayOnce_noFreeShards_doesNothing() {
+        when(repository.lockShards(4)).thenReturn(List.of());
+
+        assertThat(relay.relayOnce()).isZero();
+
+        verifyNoInteractions(producer);
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.userdbapi.events;
+
+import org.example.userdbapi.config.CacheConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserCacheInvalidationListenerTest {
+
+    private Cache cache;
+    private UserCacheInvalidationListener listener;
+
+    @BeforeEach
+    void setUp() {
+        var cacheManager = new ConcurrentMapCacheManager(CacheConfig.USERS);
+        cache = cacheManager.getCache(CacheConfig.USERS);
+        listener = new UserCacheInvalidationListener(cacheManager);
+        cache.put(1L, "cached-1");
+        cache.put(2L, "cached-2");
+    }
+
+    @Test
+    void updatedAndDeletedEvents_evictOnlyThatUser() {
+        listener.onUserEvent(UserEvent.updated(1L, "a@b.com", "userdb-api"));
+        listener.onUserEvent(UserEvent.deleted(2L, "c@d.com", "userdb-api"));
+
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.get(2L)).isNull();
+    }
+
+    @Test
+    void createdEvent_keepsCache() {
+        listener.onUserEvent(UserEvent.created(1L, "a@b.com", "userdb-api"));
+
+        assertThat(cache.get(1L)).isNotNull();
+    }
+}
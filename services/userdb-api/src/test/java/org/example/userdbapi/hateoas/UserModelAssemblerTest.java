@@ -0,0 +1,86 @@
+package org.example.userdbapi.hateoas;
+
+import org.example.userdbapi.controller.UserController;
+import org.example.userdbapi.dto.UserDto;
+import org.example.userdbapi.dto.UserPage;
+import org.example.userdbapi.dto.UserSort;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Links;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+class UserModelAssemblerTest {
+
+    private final UserModelAssembler assembler = new UserModelAssembler();
+
+    @BeforeEach
+    void bindRequest() {
+        var request = new MockHttpServletRequest("GET", "/api/users");
+        request.setScheme("https");
+        request.setServerName("api.example.com");
+        request.setServerPort(8443);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void toModel_buildsSameLinksAsMethodOn() {
+        UserDto dto = user(42);
+
+        assertThat(assembler.toModel(dto).getLinks())
+                .extracting(Link::getRel, Link::getHref, Link::isTemplated)
+                .containsExactlyElementsOf(methodOnLinks(dto).stream()
+                        .map(l -> tuple(l.getRel(), l.getHref(), l.isTemplated()))
+                        .toList());
+    }
+
+    @Test
+    void toPageModel_sharesRequestBaseAcrossRows() {
+        var page = new UserPage(List.of(user(1), user(2)), "Mg");
+
+        var model = assembler.toPageModel(page, 2, null, UserSort.ID, Sort.Direction.ASC);
+
+        assertThat(model.getContent()).extracting(m -> m.getRequiredLink(IanaLinkRelations.SELF).getHref())
+                .containsExactly("https://api.example.com:8443/api/users/1", "https://api.example.com:8443/api/users/2");
+        assertThat(model.getRequiredLink(IanaLinkRelations.NEXT).getHref()).contains("after=Mg");
+    }
+
+    @Test
+    void toModel_outsideRequest_givesRelativeLinks() {
+        RequestContextHolder.resetRequestAttributes();
+
+        assertThat(assembler.toModel(user(7)).getRequiredLink(IanaLinkRelations.SELF).getHref())
+                .isEqualTo("/api/users/7");
+    }
+
+    // как строились ссылки до кэширования шаблонов
+    private static Links methodOnLinks(UserDto dto) {
+        return Links.of(
+                linkTo(methodOn(UserController.class).getById(dto.id(), null)).withSelfRel(),
+                linkTo(methodOn(UserController.class).getAll(null, null, null, null)).withRel("all-users"),
+                linkTo(methodOn(UserController.class).update(dto.id(), null, null)).withRel("update"),
+                linkTo(methodOn(UserController.class).delete(dto.id(), null)).withRel("delete"));
+    }
+
+    private static UserDto user(long id) {
+        return new UserDto(id, "User " + id, "u%d@example.com".formatted(id), 30, LocalDateTime.of(2024, 1, 1, 0, 0), 0L);
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.userdbapi.it;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.userdbapi.events.OutboxRelay;
+import org.example.userdbapi.events.UserEvent;
+import org.example.userdbapi.events.UserEventOutbox;
+import org.example.userdbapi.events.UserEventProducer;
+import org.example.userdbapi.model.OutboxEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * Две реплики — два EntityManagerFactory со своими pooled-генераторами id — пишут события
+ * одного пользователя в outbox. Relay должен опубликовать их в порядке записи (relay_order),
+ * а не в порядке блоков sequence, которые достались репликам.
+ */
+@Testcontainers
+@SpringBootTest(properties = "app.outbox.poll-interval-ms=3600000")
+class OutboxOrderingIT {
+
+    private static final long USER_ID = 4_000_001;
+
+    @Container
+    static PostgreSQLContainer<?> pg = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("userdb")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void dbProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", pg::getJdbcUrl);
+        registry.add("spring.datasource.username", pg::getUsername);
+        registry.add("spring.datasource.password", pg::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> false);
+    }
+
+    @MockitoBean
+    UserEventProducer producer;
+
+    @Autowired
+    OutboxRelay relay;
+    @Autowired
+    EntityManagerFactoryBuilder emfBuilder;
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    private final List<LocalContainerEntityManagerFactoryBean> replicas = new ArrayList<>();
+
+    @AfterEach
+    void closeReplicas() {
+        replicas.forEach(LocalContainerEntityManagerFactoryBean::destroy);
+    }
+
+    @Test
+    void eventsOfOneUser_fromTwoReplicas_publishedInWriteOrder() {
+        List<UserEvent> published = Collections.synchronizedList(new ArrayList<>());
+        when(producer.sendAll(anyList())).thenAnswer(inv -> {
+            published.addAll(inv.getArgument(0));
+            return CompletableFuture.completedFuture(null);
+        });
+
+        EntityManagerFactory a = replica("replica-a");
+        EntityManagerFactory b = replica("replica-b");
+        // A первой берёт блок id, у B блок выше: по id B-событие шло бы после A-DELETED
+        write(a, UserEvent.created(USER_ID + 1, "other@example.com", "replica-a"));
+        write(b, UserEvent.created(USER_ID, "order@example.com", "replica-b"));
+        write(a, UserEvent.deleted(USER_ID, "order@example.com", "replica-a"));
+
+        // каждый проход берёт только часть шардов
+        for (int i = 0; i < UserEventOutbox.SHARDS; i++) {
+            relay.relay();
+        }
+
+        assertThat(published).filteredOn(e -> e.getUserId() == USER_ID)
+                .extracting(UserEvent::getEventType)
+                .containsExactly(UserEvent.Type.USER_CREATED, UserEvent.Type.USER_DELETED);
+        assertThat(jdbc.queryForObject("select increment_by from pg_sequences where sequencename = 'user_event_outbox_seq'",
+                Long.class)).isEqualTo(50);
+    }
+
+    private EntityManagerFactory replica(String name) {
+        LocalContainerEntityManagerFactoryBean emf = emfBuilder.dataSource(dataSource)
+                .packages(OutboxEvent.class)
+                .persistenceUnit(name)
+                .build();
+        emf.afterPropertiesSet();
+        replicas.add(emf);
+        return emf.getObject();
+    }
+
+    private static void write(EntityManagerFactory emf, UserEvent event) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.persist(OutboxEvent.of(event, UserEventOutbox.shardOf(event.getUserId())));
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+}
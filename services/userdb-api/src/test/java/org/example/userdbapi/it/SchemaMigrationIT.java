@@ -0,0 +1,109 @@
+package org.example.userdbapi.it;
+
+import org.example.userdbapi.UserdbApiApplication;
+import org.example.userdbapi.dto.UserCreateDto;
+import org.example.userdbapi.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Схема создаётся только Flyway, Hibernate её сверяет (ddl-auto=validate). Проверяются пустая база
+ * и база, которую раньше создал ddl-auto=update.
+ */
+@Testcontainers
+class SchemaMigrationIT {
+
+    @Container
+    static PostgreSQLContainer<?> pg = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("userdb")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @Test
+    void emptyDatabase_migratedByFlyway_passesValidate() {
+        String url = createDatabase("fresh");
+
+        try (var ctx = start(url)) {
+            JdbcTemplate jdbc = ctx.getBean(JdbcTemplate.class);
+            assertThat(jdbc.queryForList(
+                    "select version from flyway_schema_history where success order by installed_rank", String.class))
+                    .containsExactly("1", "2", "3", "4", "5", "6", "7", "8");
+            assertThat(jdbc.queryForObject(
+                    "select increment_by from pg_sequences where sequencename = 'users_seq'", Long.class))
+                    .isEqualTo(50);
+            assertThat(jdbc.queryForList("select indexname from pg_indexes where tablename = 'users'", String.class))
+                    .contains("users_email_key", "users_email_lower_idx", "users_name_trgm_idx", "users_created_at_id_idx");
+            assertThat(ctx.getBean(UserService.class)
+                    .createUser(new UserCreateDto("Fresh", "schema-fresh@example.com", 30)).id()).isPositive();
+        }
+    }
+
+    @Test
+    void ddlAutoDatabase_baselined_migrated_andIdsContinueAboveExisting() {
+        String url = createDatabase("legacy");
+        JdbcTemplate legacy = jdbc(url);
+        // так таблицу создавал ddl-auto=update для User с IDENTITY
+        legacy.execute("""
+                create table users (
+                    id bigint generated by default as identity,
+                    age integer not null,
+                    created_at timestamp(6) not null,
+                    email varchar(255) not null,
+                    name varchar(255) not null,
+                    primary key (id),
+                    constraint uk_users_email unique (email))
+                """);
+        legacy.update("""
+                insert into users (name, email, age, created_at)
+                select 'Legacy ' || g, 'legacy' || g || '@example.com', 30, localtimestamp
+                from generate_series(1, 120) g
+                """);
+
+        try (var ctx = start(url)) {
+            JdbcTemplate jdbc = ctx.getBean(JdbcTemplate.class);
+            assertThat(jdbc.queryForList(
+                    "select version from flyway_schema_history where success order by installed_rank", String.class))
+                    .containsExactly("1", "2", "3", "4", "5", "6", "7", "8");
+            assertThat(jdbc.queryForObject("""
+                    select is_identity from information_schema.columns
+                    where table_name = 'users' and column_name = 'id'
+                    """, String.class)).isEqualTo("NO");
+            assertThat(ctx.getBean(UserService.class)
+                    .createUser(new UserCreateDto("New", "schema-legacy-new@example.com", 30)).id()).isGreaterThan(120);
+            assertThat(jdbc.queryForObject("select count(*) from users", Long.class)).isEqualTo(121);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String url) {
+        // аргументами, а не properties(): те ниже по приоритету, чем application.yml
+        return new SpringApplicationBuilder(UserdbApiApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + url,
+                        "--spring.datasource.username=" + pg.getUsername(),
+                        "--spring.datasource.password=" + pg.getPassword(),
+                        "--spring.jpa.hibernate.ddl-auto=validate",
+                        "--spring.cloud.config.enabled=false",
+                        "--eureka.client.enabled=false",
+                        // без брокера KafkaAdmin и listener ждали бы таймаутов на каждом старте
+                        "--spring.kafka.admin.auto-create=false",
+                        "--spring.kafka.listener.auto-startup=false",
+                        "--spring.main.banner-mode=off");
+    }
+
+    private static String createDatabase(String name) {
+        jdbc(pg.getJdbcUrl()).execute("create database " + name);
+        return "jdbc:postgresql://%s:%d/%s".formatted(pg.getHost(), pg.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT), name);
+    }
+
+    private static JdbcTemplate jdbc(String url) {
+        return new JdbcTemplate(new DriverManagerDataSource(url, pg.getUsername(), pg.getPassword()));
+    }
+}
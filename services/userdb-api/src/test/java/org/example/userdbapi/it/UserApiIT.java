@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
@@ -14,7 +15,9 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.io.Serializable;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -36,7 +39,7 @@ public class UserApiIT {
         registry.add("spring.datasource.url", pg::getJdbcUrl);
         registry.add("spring.datasource.username", pg::getUsername);
         registry.add("spring.datasource.password", pg::getPassword);
-        registry.add("spring.jpa.hibernate.ddl-auto", () -> "update");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
         registry.add("spring.jpa.open-in-view", () -> false);
     }
 
@@ -44,6 +47,8 @@ public class UserApiIT {
     MockMvc mvc;
     @Autowired
     ObjectMapper om;
+    @Autowired
+    JdbcTemplate jdbc;
 
     @Test
     void fullCycle_create_get_delete() throws Exception {
@@ -62,12 +67,19 @@ public class UserApiIT {
         var out = om.readValue(resp,  Out.class);
 
         // get
-        mvc.perform(get("/api/users/{id}", out.id()))
+        var etag = mvc.perform(get("/api/users/{id}", out.id()))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.email").value("v@mail.ru"));
+                .andExpect(jsonPath("$.email").value("v@mail.ru"))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        // get, ничего не поменялось -> 304
+        mvc.perform(get("/api/users/{id}", out.id()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
 
         // delete
-        mvc.perform(delete("/api/users/{id}", out.id()))
+        mvc.perform(delete("/api/users/{id}", out.id()).header("If-Match", etag))
                 .andExpect(status().isNoContent());
 
         // get -> 404
@@ -90,4 +102,67 @@ public class UserApiIT {
                     .content(om.writeValueAsString(b)))
                 .andExpect(status().isConflict());
     }
+
+    @Test
+    void batchCreate_insertsValid_andReportsConflicts() throws Exception {
+        var batch = List.of(
+                new UserCreateDto("B1", "batch1@mail.ru", 30),
+                new UserCreateDto("B2", "batch2@mail.ru", 31),
+                new UserCreateDto("B3", "batch1@mail.ru", 32));
+
+        mvc.perform(post("/api/users/batch")
+                    .contentType(APPLICATION_JSON)
+                    .content(om.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.items[2].status").value("CONFLICT"))
+                .andExpect(jsonPath("$.items[0].user.id").isNumber());
+    }
+
+    @Test
+    void csvImport_copiesValidRows_andSkipsDuplicatesAndGarbage() throws Exception {
+        var csv = """
+                name,email,age
+                Imp One,imp1@mail.ru,20
+                Imp Two,imp2@mail.ru,abc
+                Imp Dup,imp1@mail.ru,22
+                "Imp, Three",imp3@mail.ru,40
+                """;
+
+        mvc.perform(post("/api/users/import")
+                    .contentType("text/csv")
+                    .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(4))
+                .andExpect(jsonPath("$.inserted").value(2))
+                .andExpect(jsonPath("$.skipped").value(2));
+    }
+
+    @Test
+    void csvImport_takesOneIdBlockPer50Rows() throws Exception {
+        var csv = new StringBuilder("name,email,age\n");
+        for (int i = 0; i < 120; i++) {
+            csv.append("Block ").append(i).append(",block").append(i).append("@mail.ru,30\n");
+        }
+        long seqBefore = jdbc.queryForObject("select last_value from users_seq", Long.class);
+        long outboxSeqBefore = jdbc.queryForObject("select last_value from user_event_outbox_seq", Long.class);
+
+        mvc.perform(post("/api/users/import")
+                    .contentType("text/csv")
+                    .content(csv.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(120));
+
+        // три блока по 50 на 120 строк, а не 120 блоков
+        assertThat(jdbc.queryForObject("select last_value from users_seq", Long.class) - seqBefore).isEqualTo(150);
+        assertThat(jdbc.queryForObject(
+                "select max(id) - min(id) from users where email like 'block%@mail.ru'", Long.class)).isLessThan(150);
+        // и для id событий outbox так же
+        assertThat(jdbc.queryForObject("select last_value from user_event_outbox_seq", Long.class) - outboxSeqBefore)
+                .isEqualTo(150);
+        assertThat(jdbc.queryForObject(
+                "select count(distinct id) from user_event_outbox where email like 'block%@mail.ru'", Long.class))
+                .isEqualTo(120);
+    }
 }
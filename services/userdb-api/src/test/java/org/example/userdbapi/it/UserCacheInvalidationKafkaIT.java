@@ -0,0 +1,144 @@
+package org.example.userdbapi.it;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.example.userdbapi.config.CacheConfig;
+import org.example.userdbapi.events.UserCacheInvalidationListener;
+import org.example.userdbapi.events.UserEvent;
+import org.example.userdbapi.events.UserTopicPartitionsCheck;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Инвалидация кэша на настоящем брокере: слушатель без consumer group получает события
+ * всех партиций user.account, не оставляет групп на брокере, а расхождение числа партиций
+ * с конфигом роняет старт.
+ */
+@SpringBootTest(classes = UserCacheInvalidationKafkaIT.TestApp.class, properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.key-deserializer=org.apache.kafka.common.serialization.StringDeserializer",
+        "spring.kafka.consumer.value-deserializer=org.springframework.kafka.support.serializer.JsonDeserializer",
+        "spring.kafka.consumer.properties.spring.json.use.type.headers=false",
+        "spring.kafka.consumer.properties.spring.json.value.default.type=org.example.userdbapi.events.UserEvent",
+        "app.kafka.user-topic-partitions=" + UserCacheInvalidationKafkaIT.PARTITIONS
+})
+@EmbeddedKafka(partitions = UserCacheInvalidationKafkaIT.PARTITIONS, topics = UserCacheInvalidationKafkaIT.TOPIC)
+class UserCacheInvalidationKafkaIT {
+
+    static final int PARTITIONS = 3;
+    static final String TOPIC = "user.account";
+
+    @Autowired
+    EmbeddedKafkaBroker embeddedKafka;
+    @Autowired
+    CacheManager cacheManager;
+    @Autowired
+    KafkaListenerEndpointRegistry registry;
+
+    private KafkaTemplate<String, UserEvent> template;
+
+    @BeforeEach
+    void setUp() {
+        template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                "bootstrap.servers", embeddedKafka.getBrokersAsString(),
+                "key.serializer", StringSerializer.class,
+                "value.serializer", JsonSerializer.class,
+                "spring.json.add.type.headers", false)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        template.destroy();
+    }
+
+    @Test
+    void listener_readsAllPartitions_withoutConsumerGroup() throws Exception {
+        MessageListenerContainer container = registry.getListenerContainers().iterator().next();
+        await().atMost(Duration.ofSeconds(20)).untilAsserted(() ->
+                assertThat(container.getAssignedPartitions()).hasSize(PARTITIONS));
+
+        Cache cache = cacheManager.getCache(CacheConfig.USERS);
+        for (long userId = 0; userId < PARTITIONS; userId++) {
+            cache.put(userId, "cached-" + userId);
+        }
+        // latest: позиция берётся при первом poll после назначения, ранние события слушатель
+        // может не увидеть, поэтому шлём, пока пользователь в кэше
+        await().atMost(Duration.ofSeconds(20)).pollInterval(Duration.ofMillis(300)).untilAsserted(() -> {
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                long userId = partition;
+                if (cache.get(userId) != null) {
+                    template.send(new ProducerRecord<>(TOPIC, partition, String.valueOf(userId),
+                            UserEvent.updated(userId, "u%d@example.com".formatted(userId), "test")));
+                }
+            }
+            for (long userId = 0; userId < PARTITIONS; userId++) {
+                assertThat(cache.get(userId)).isNull();
+            }
+        });
+
+        assertThat(container.getAssignedPartitions()).extracting(TopicPartition::partition)
+                .containsExactlyInAnyOrder(0, 1, 2);
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG,
+                embeddedKafka.getBrokersAsString()))) {
+            assertThat(admin.listConsumerGroups().all().get()).isEmpty();
+        }
+    }
+
+    @Test
+    void partitionsMismatch_failsStartup() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(KafkaAutoConfiguration.class))
+                .withUserConfiguration(UserTopicPartitionsCheck.class)
+                .withPropertyValues("spring.kafka.bootstrap-servers=" + embeddedKafka.getBrokersAsString(),
+                        "app.kafka.user-topic-partitions=" + (PARTITIONS + 3))
+                .run(ctx -> assertThat(ctx).hasFailed()
+                        .getFailure().hasMessageContaining("has 3 partitions"));
+
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(KafkaAutoConfiguration.class))
+                .withUserConfiguration(UserTopicPartitionsCheck.class)
+                .withPropertyValues("spring.kafka.bootstrap-servers=" + embeddedKafka.getBrokersAsString(),
+                        "app.kafka.user-topic-partitions=" + PARTITIONS)
+                .run(ctx -> assertThat(ctx).hasNotFailed());
+    }
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration(KafkaAutoConfiguration.class)
+    @Import({UserCacheInvalidationListener.class, UserTopicPartitionsCheck.class})
+    static class TestApp {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(CacheConfig.USERS);
+        }
+    }
+}
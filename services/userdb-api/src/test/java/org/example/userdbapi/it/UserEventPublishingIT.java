@@ -21,7 +21,10 @@ import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@SpringBootTest(properties = "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}")
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "app.kafka.user-topic-partitions=1"
+})
 @EmbeddedKafka(partitions = 1, topics = {"user.account"})
 class UserEventPublishingIT {
 
@@ -0,0 +1,89 @@
+package org.example.userdbapi.it;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * POST /api/users/lookup на реальной базе: порядок ответа — порядок запроса, ненайденные id
+ * возвращаются отдельно, число id ограничено.
+ */
+@Testcontainers
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserLookupIT {
+
+    private static final long FIRST_ID = 2_000_001;
+    private static final int ROWS = 500;
+
+    @Container
+    static PostgreSQLContainer<?> pg = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("userdb")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void dbProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", pg::getJdbcUrl);
+        registry.add("spring.datasource.username", pg::getUsername);
+        registry.add("spring.datasource.password", pg::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> false);
+    }
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    ObjectMapper om;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @BeforeAll
+    void seed() {
+        // id вне диапазона users_seq, чтобы не мешать вставкам через приложение
+        jdbc.update("""
+                insert into users (id, name, email, age, created_at)
+                select g, 'User ' || g, 'lookup' || g || '@example.com', 18 + g % 60, localtimestamp
+                from generate_series(?::bigint, ?::bigint) g
+                """, FIRST_ID, FIRST_ID + ROWS - 1);
+    }
+
+    @Test
+    void lookup_keepsOrder_reportsMissing_andIsBounded() throws Exception {
+        mvc.perform(post("/api/users/lookup").contentType(APPLICATION_JSON)
+                        .content(om.writeValueAsString(List.of(FIRST_ID + 2, 1L, FIRST_ID, FIRST_ID + 2))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(2))
+                .andExpect(jsonPath("$.users[0].id").value(FIRST_ID + 2))
+                .andExpect(jsonPath("$.users[1].id").value(FIRST_ID))
+                .andExpect(jsonPath("$.missing[0]").value(1));
+
+        mvc.perform(post("/api/users/lookup").contentType(APPLICATION_JSON)
+                        .content(om.writeValueAsString(ids(501))))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static List<Long> ids(int n) {
+        return LongStream.range(FIRST_ID, FIRST_ID + n).boxed().toList();
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.userdbapi.it;
+
+import jakarta.persistence.EntityManager;
+import org.example.userdbapi.dto.UserDto;
+import org.example.userdbapi.dto.UserSort;
+import org.example.userdbapi.mapper.UserMapper;
+import org.example.userdbapi.repository.UserRepository;
+import org.example.userdbapi.repository.UserSpecifications;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнивает чтение страницы через сущности (findBy + UserMapper, как было раньше)
+ * с проекцией в UserDto на одной и той же таблице: результаты обоих путей должны
+ * совпадать, а проекция не должна наполнять persistence context.
+ */
+@Testcontainers
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserReadProjectionIT {
+
+    private static final int ROWS = 20_000;
+    private static final int PAGE = 500;
+
+    @Container
+    static PostgreSQLContainer<?> pg = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("userdb")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void dbProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", pg::getJdbcUrl);
+        registry.add("spring.datasource.username", pg::getUsername);
+        registry.add("spring.datasource.password", pg::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> false);
+    }
+
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    UserMapper userMapper;
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    JdbcTemplate jdbc;
+    @Autowired
+    PlatformTransactionManager txManager;
+
+    private TransactionTemplate readOnlyTx;
+
+    @BeforeAll
+    void seed() {
+        readOnlyTx = new TransactionTemplate(txManager);
+        readOnlyTx.setReadOnly(true);
+        // id вне диапазона users_seq, чтобы не мешать вставкам через приложение
+        jdbc.update("""
+                insert into users (id, name, email, age, created_at)
+                select g, 'User ' || g, 'proj' || g || '@example.com', 18 + g % 60,
+                       timestamp '2024-01-01' + g * interval '1 minute'
+                from generate_series(1000001, 1000000 + ?) g
+                """, ROWS);
+    }
+
+    @Test
+    void projection_matchesEntityPath_andKeepsContextEmpty() {
+        Sort sort = UserSort.CREATED_AT.toSort(Sort.Direction.DESC);
+
+        List<UserDto> viaEntities = readOnlyTx.execute(s -> entityPage(sort));
+        List<UserDto> viaProjection = readOnlyTx.execute(s -> {
+            List<UserDto> rows = projectionPage(sort);
+            assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+            return rows;
+        });
+
+        assertThat(viaProjection).hasSize(PAGE).isEqualTo(viaEntities);
+        assertThat(userRepository.findDtoById(viaEntities.getFirst().id())).contains(viaEntities.getFirst());
+    }
+
+    // как страница читалась до проекции
+    private List<UserDto> entityPage(Sort sort) {
+        return userRepository.findBy(UserSpecifications.after(null, UserSort.ID, Sort.Direction.ASC),
+                        q -> q.sortBy(sort).limit(PAGE).all())
+                .stream()
+                .map(userMapper::toDto)
+                .toList();
+    }
+
+    private List<UserDto> projectionPage(Sort sort) {
+        return userRepository.findDtos(UserSpecifications.after(null, UserSort.ID, Sort.Direction.ASC), sort, PAGE);
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.userdbapi.it;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.userdbapi.dto.UserPage;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /api/users/search на Postgres с индексами из V5. auto_explain пишет в лог контейнера план
+ * каждого запроса приложения, а plan_cache_mode=force_generic_plan заставляет планировщик
+ * выбирать план, не зная значений параметров, — как после пятого выполнения prepared statement.
+ */
+@Testcontainers
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserSearchIT {
+
+    private static final long FIRST_ID = 3_000_001;
+    private static final int ROWS = 50_000;
+
+    @Container
+    static PostgreSQLContainer<?> pg = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("userdb")
+            .withUsername("postgres")
+            .withPassword("postgres")
+            .withCommand("postgres",
+                    "-c", "shared_preload_libraries=auto_explain",
+                    "-c", "auto_explain.log_min_duration=0",
+                    "-c", "plan_cache_mode=force_generic_plan");
+
+    @DynamicPropertySource
+    static void dbProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", pg::getJdbcUrl);
+        registry.add("spring.datasource.username", pg::getUsername);
+        registry.add("spring.datasource.password", pg::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> false);
+    }
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    ObjectMapper om;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @BeforeAll
+    void seed() {
+        // id вне диапазона users_seq; пять «Zebra» на всю таблицу — селективный префикс
+        jdbc.update("""
+                insert into users (id, name, email, age, created_at)
+                select g,
+                       case when g % 10000 = 0 then 'Zebra ' || g else 'User ' || g end,
+                       'search' || g || '@example.com', 18 + g % 60,
+                       timestamp '2020-01-01' + (g - ?) * interval '1 minute'
+                from generate_series(?::bigint, ?::bigint) g
+                """, FIRST_ID, FIRST_ID, FIRST_ID + ROWS - 1);
+        jdbc.update("""
+                insert into users (id, name, email, age, created_at)
+                values (?, '100% Real', 'percent@example.com', 40, timestamp '2019-01-01'),
+                       (?, '1000 Real', 'thousand@example.com', 40, timestamp '2019-01-01')
+                """, FIRST_ID + ROWS, FIRST_ID + ROWS + 1);
+        jdbc.execute("analyze users");
+    }
+
+    @Test
+    void filters_areCaseInsensitive_combinable_andPagedByKeyset() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String after = null;
+        do {
+            var request = get("/api/users/search").param("name", "zEbRa").param("limit", "2");
+            if (after != null) {
+                request.param("after", after);
+            }
+            UserPage page = search(request);
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(2);
+            page.items().forEach(u -> ids.add(u.id()));
+            after = page.nextCursor();
+        } while (after != null);
+        assertThat(ids).hasSize(5).isSorted();
+
+        assertThat(search(get("/api/users/search").param("email", "SEARCH3010000@Example.com")).items())
+                .extracting("name").containsExactly("Zebra 3010000");
+        assertThat(search(get("/api/users/search").param("name", "zebra").param("minAge", "30").param("maxAge", "40"))
+                .items()).allSatisfy(u -> assertThat(u.age()).isBetween(30, 40));
+        assertThat(search(get("/api/users/search").param("name", "100%")).items())
+                .extracting("email").containsExactly("percent@example.com");
+
+        mvc.perform(get("/api/users/search").param("minAge", "50").param("maxAge", "20"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void plans_useSearchIndexes_evenAsGenericPlans() throws Exception {
+        assertPlanUses(get("/api/users/search").param("name", "zeb"), "users_name_trgm_idx");
+        assertPlanUses(get("/api/users/search").param("email", "Search3000042@example.com"), "users_email_lower_idx");
+        assertPlanUses(get("/api/users/search")
+                        .param("createdFrom", "2020-01-02T00:00:00").param("createdTo", "2020-01-02T01:00:00")
+                        .param("sort", "createdAt"),
+                "users_created_at_id_idx");
+        // keyset по createdAt без фильтров тоже идёт по индексу, а не сортирует всю таблицу
+        assertPlanUses(get("/api/users").param("sort", "createdAt").param("limit", "20"), "users_created_at_id_idx");
+    }
+
+    private UserPage search(MockHttpServletRequestBuilder request) throws Exception {
+        String body = mvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return om.readValue(body, UserPage.class);
+    }
+
+    // план в лог контейнера пишется асинхронно к ответу, поэтому немного ждём
+    private void assertPlanUses(MockHttpServletRequestBuilder request, String index) throws Exception {
+        int from = pg.getLogs().length();
+        mvc.perform(request).andExpect(status().isOk());
+
+        String plans = "";
+        for (int attempt = 0; attempt < 50; attempt++) {
+            plans = pg.getLogs().substring(from);
+            if (plans.contains(index)) {
+                assertThat(plans).doesNotContain("Seq Scan on users");
+                return;
+            }
+            Thread.sleep(100);
+        }
+        fail("No %s in plans:%n%s".formatted(index, plans));
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.userdbapi.it;
+
+import org.example.userdbapi.dto.UserCreateDto;
+import org.example.userdbapi.dto.UserDto;
+import org.example.userdbapi.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Запись одним UPDATE/DELETE ... RETURNING: конфликт email из уникального индекса,
+ * PATCH без изменений не пишет событие, устаревший If-Match даёт 412.
+ */
+@Testcontainers
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserWritePathIT {
+
+    @Container
+    static PostgreSQLContainer<?> pg = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("userdb")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void dbProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", pg::getJdbcUrl);
+        registry.add("spring.datasource.username", pg::getUsername);
+        registry.add("spring.datasource.password", pg::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> false);
+    }
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    UserService userService;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void update_toTakenEmail_conflict409_andRowUntouched() throws Exception {
+        UserDto a = userService.createUser(new UserCreateDto("A", "write-a@example.com", 20));
+        userService.createUser(new UserCreateDto("B", "write-b@example.com", 21));
+
+        mvc.perform(put("/api/users/{id}", a.id())
+                        .header("If-Match", "*")
+                        .contentType(APPLICATION_JSON)
+                        .content("""
+                                {"name": "A2", "email": "write-b@example.com", "age": 22}
+                                """))
+                .andExpect(status().isConflict());
+
+        assertThat(userService.getUserByID(a.id()).name()).isEqualTo("A");
+    }
+
+    @Test
+    void patch_changesOnlyGivenField_noOpWritesNoEvent() throws Exception {
+        UserDto u = userService.createUser(new UserCreateDto("Patch", "write-patch@example.com", 30));
+
+        mvc.perform(patch("/api/users/{id}", u.id()).header("If-Match", "*")
+                        .contentType(APPLICATION_JSON).content("{\"age\": 31}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.age").value(31))
+                .andExpect(jsonPath("$.name").value("Patch"))
+                .andExpect(jsonPath("$.email").value("write-patch@example.com"));
+        long events = outboxEvents(u.id());
+
+        mvc.perform(patch("/api/users/{id}", u.id()).header("If-Match", "*")
+                        .contentType(APPLICATION_JSON).content("{\"age\": 31}"))
+                .andExpect(status().isOk());
+
+        assertThat(outboxEvents(u.id())).isEqualTo(events);
+        mvc.perform(patch("/api/users/{id}", Long.MAX_VALUE).header("If-Match", "*")
+                        .contentType(APPLICATION_JSON).content("{\"age\": 1}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void concurrentPuts_sameIfMatch_secondOneGets412() throws Exception {
+        UserDto u = userService.createUser(new UserCreateDto("Race", "write-race@example.com", 25));
+        String etag = "\"" + u.version() + "\"";
+
+        mvc.perform(put("/api/users/{id}", u.id()).header("If-Match", etag).contentType(APPLICATION_JSON)
+                        .content("""
+                                {"name": "First", "email": "write-race@example.com", "age": 25}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + (u.version() + 1) + "\""));
+        mvc.perform(put("/api/users/{id}", u.id()).header("If-Match", etag).contentType(APPLICATION_JSON)
+                        .content("""
+                                {"name": "Second", "email": "write-race@example.com", "age": 25}
+                                """))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(delete("/api/users/{id}", u.id()).header("If-Match", etag))
+                .andExpect(status().isPreconditionFailed());
+
+        assertThat(userService.getUserByID(u.id()).name()).isEqualTo("First");
+    }
+
+    @Test
+    void delete_returnsEmailIntoEvent_secondDelete404() throws Exception {
+        UserDto u = userService.createUser(new UserCreateDto("Del", "write-del@example.com", 40));
+
+        mvc.perform(delete("/api/users/{id}", u.id()).header("If-Match", "*")).andExpect(status().isNoContent());
+        mvc.perform(delete("/api/users/{id}", u.id()).header("If-Match", "*")).andExpect(status().isNotFound());
+
+        assertThat(jdbc.queryForObject(
+                "select email from user_event_outbox where user_id = ? and event_type = 'USER_DELETED'",
+                String.class, u.id())).isEqualTo("write-del@example.com");
+    }
+
+    private long outboxEvents(Long userId) {
+        return jdbc.queryForObject("select count(*) from user_event_outbox where user_id = ?", Long.class, userId);
+    }
+}
@@ -0,0 +1,156 @@
+package org.example.userdbapi.it;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.userdbapi.controller.UserController;
+import org.example.userdbapi.dto.UserDto;
+import org.example.userdbapi.exception.GlobalExceptionHandler;
+import org.example.userdbapi.hateoas.UserModelAssembler;
+import org.example.userdbapi.service.UserBatchService;
+import org.example.userdbapi.service.UserExportService;
+import org.example.userdbapi.service.UserImportService;
+import org.example.userdbapi.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Нагрузка на GET /api/users/{id}, где вместо базы — сервис, отвечающий за {@link #DB_LATENCY_MS}
+ * (как медленный Postgres). Одно и то же приложение поднимается дважды: на пуле Tomcat из
+ * {@link #TOMCAT_THREADS} платформенных потоков и на виртуальных потоках. Пропускная способность
+ * и p99 обоих прогонов пишутся в лог. Задержка «базы» выбрана большой, чтобы прогон упирался
+ * в ожидание, а не в CPU машины, где клиент и сервер делят ядра. Postgres и Kafka не нужны.
+ */
+@Slf4j
+class VirtualThreadsLoadIT {
+
+    private static final long DB_LATENCY_MS = 200;
+    private static final int TOMCAT_THREADS = 10;
+    private static final int CLIENTS = 100;
+    private static final int REQUESTS = 600;
+
+    record Result(double throughput, long p50Ms, long p99Ms) {}
+
+    @Test
+    void virtualThreads_outlastPlatformPool_whenDbIsSlow() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        log.info("Slow DB ({} ms/query), {} clients, {} requests: platform threads (max {}) {} req/s p50={} ms p99={} ms;"
+                        + " virtual threads {} req/s p50={} ms p99={} ms",
+                DB_LATENCY_MS, CLIENTS, REQUESTS, TOMCAT_THREADS,
+                Math.round(platform.throughput()), platform.p50Ms(), platform.p99Ms(),
+                Math.round(virtual.throughput()), virtual.p50Ms(), virtual.p99Ms());
+
+        // потолок пула: TOMCAT_THREADS запросов за DB_LATENCY_MS, у виртуальных его нет
+        assertThat(platform.throughput()).isLessThanOrEqualTo(TOMCAT_THREADS * 1000.0 / DB_LATENCY_MS * 1.1);
+        assertThat(virtual.throughput()).isGreaterThan(platform.throughput() * 2);
+        assertThat(virtual.p99Ms()).isLessThan(platform.p99Ms());
+    }
+
+    private static Result run(boolean virtualThreads) throws Exception {
+        try (var ctx = (ServletWebServerApplicationContext) new SpringApplicationBuilder(LoadTestApp.class)
+                // аргументами, а не properties(): те ниже по приоритету, чем application.yml
+                .run("--server.port=0",
+                        "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.cloud.config.enabled=false",
+                        "--eureka.client.enabled=false",
+                        "--spring.main.banner-mode=off")) {
+            String base = "http://localhost:%d/api/users/".formatted(ctx.getWebServer().getPort());
+            try (HttpClient client = HttpClient.newHttpClient()) {
+                load(client, base, CLIENTS); // прогрев: соединения, JIT
+                long started = System.nanoTime();
+                long[] latencies = load(client, base, REQUESTS);
+                double seconds = (System.nanoTime() - started) / 1e9;
+                Arrays.sort(latencies);
+                return new Result(REQUESTS / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99));
+            }
+        }
+    }
+
+    private static long[] load(HttpClient client, String base, int requests) throws InterruptedException {
+        long[] latencies = new long[requests];
+        var next = new AtomicInteger();
+        var failures = new AtomicInteger();
+        try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                clients.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        var request = HttpRequest.newBuilder(URI.create(base + (i + 1))).GET().build();
+                        long started = System.nanoTime();
+                        try {
+                            if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                                failures.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                        }
+                        latencies[i] = System.nanoTime() - started;
+                    }
+                });
+            }
+        }
+        assertThat(failures.get()).isZero();
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return TimeUnit.NANOSECONDS.toMillis(sorted[(int) Math.ceil(p * sorted.length) - 1]);
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration(exclude = {DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            FlywayAutoConfiguration.class, KafkaAutoConfiguration.class})
+    @Import({UserController.class, UserModelAssembler.class, GlobalExceptionHandler.class})
+    static class LoadTestApp {
+
+        @Bean
+        UserService userService() {
+            UserService service = Mockito.mock(UserService.class);
+            when(service.getUserByID(anyLong())).thenAnswer(inv -> {
+                Thread.sleep(DB_LATENCY_MS);
+                Long id = inv.getArgument(0);
+                return new UserDto(id, "User " + id, "u%d@example.com".formatted(id), 30, LocalDateTime.now(), 0L);
+            });
+            return service;
+        }
+
+        @Bean
+        UserExportService userExportService() {
+            return Mockito.mock(UserExportService.class);
+        }
+
+        @Bean
+        UserBatchService userBatchService() {
+            return Mockito.mock(UserBatchService.class);
+        }
+
+        @Bean
+        UserImportService userImportService() {
+            return Mockito.mock(UserImportService.class);
+        }
+    }
+}
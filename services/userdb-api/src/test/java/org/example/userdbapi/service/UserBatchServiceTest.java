@@ -0,0 +1,92 @@
+package org.example.userdbapi.service;
+
+import jakarta.validation.Validation;
+import org.example.userdbapi.dto.UserBatchResultDto.Status;
+import org.example.userdbapi.dto.UserCreateDto;
+import org.example.userdbapi.events.UserEventOutbox;
+import org.example.userdbapi.exception.BadRequestException;
+import org.example.userdbapi.mapper.UserMapper;
+import org.example.userdbapi.model.User;
+import org.example.userdbapi.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserBatchServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserEventOutbox userEventOutbox;
+
+    private UserBatchService service;
+
+    @BeforeEach
+    void setUp() {
+        var validator = Validation.buildDefaultValidatorFactory().getValidator();
+        service = new UserBatchService(userRepository, new UserMapper(), userEventOutbox, validator);
+        ReflectionTestUtils.setField(service, "maxBatchSize", 3);
+    }
+
+    @Test
+    void createUsers_reportsPerItemStatus_andChecksEmailsInOneQuery() {
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Set.of("taken@a.com"));
+        AtomicLong ids = new AtomicLong(100);
+        when(userRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<User> in = new ArrayList<>(inv.<Collection<User>>getArgument(0));
+            in.forEach(u -> u.setId(ids.incrementAndGet()));
+            return in;
+        });
+
+        var result = service.createUsers(List.of(
+                new UserCreateDto("A", "a@a.com", 20),
+                new UserCreateDto("B", "taken@a.com", 21),
+                new UserCreateDto("C", "not-an-email", 22)));
+
+        assertThat(result.created()).isEqualTo(1);
+        assertThat(result.failed()).isEqualTo(2);
+        assertThat(result.items()).extracting("status")
+                .containsExactly(Status.CREATED, Status.CONFLICT, Status.INVALID);
+        assertThat(result.items().get(0).user().id()).isEqualTo(101L);
+
+        verify(userRepository, times(1)).findExistingEmails(anyCollection());
+        verify(userRepository, never()).existsByEmail(any());
+        verify(userEventOutbox, times(1)).appendAll(argThat(events -> events.size() == 1));
+    }
+
+    @Test
+    void createUsers_duplicateInsideBatch_secondIsConflict() {
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Set.of());
+        when(userRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        var result = service.createUsers(List.of(
+                new UserCreateDto("A", "same@a.com", 20),
+                new UserCreateDto("B", "same@a.com", 21)));
+
+        assertThat(result.items()).extracting("status").containsExactly(Status.CREATED, Status.CONFLICT);
+    }
+
+    @Test
+    void createUsers_tooLarge_badRequest() {
+        var dto = new UserCreateDto("A", "a@a.com", 20);
+        assertThatThrownBy(() -> service.createUsers(List.of(dto, dto, dto, dto)))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(userRepository);
+    }
+}
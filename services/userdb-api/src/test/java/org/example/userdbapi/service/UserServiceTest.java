@@ -1,21 +1,35 @@
 package org.example.userdbapi.service;
 
 import org.example.userdbapi.dto.UserCreateDto;
+import org.example.userdbapi.dto.UserCursor;
+import org.example.userdbapi.dto.UserDto;
+import org.example.userdbapi.dto.UserPatchDto;
+import org.example.userdbapi.dto.UserSearchFilter;
+import org.example.userdbapi.dto.UserSort;
 import org.example.userdbapi.dto.UserUpdateDto;
 import org.example.userdbapi.events.UserEvent;
-import org.example.userdbapi.events.UserEventProducer;
+import org.example.userdbapi.events.UserEventOutbox;
+import org.example.userdbapi.exception.BadRequestException;
 import org.example.userdbapi.exception.ConflictException;
 import org.example.userdbapi.exception.NotFoundException;
+import org.example.userdbapi.exception.PreconditionFailedException;
 import org.example.userdbapi.mapper.UserMapper;
 import org.example.userdbapi.model.User;
 import org.example.userdbapi.repository.UserRepository;
+import org.example.userdbapi.repository.UserWriteRepository.UserChange;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,7 +43,7 @@ class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private UserEventProducer userEventProducer;
+    private UserEventOutbox userEventOutbox;
 
     private UserService service;
     private UserMapper mapper;
@@ -37,40 +51,134 @@ class UserServiceTest {
     @BeforeEach
     void setUp() {
         mapper = new UserMapper();
-        service = new UserService(userRepository, mapper, userEventProducer);
+        service = new UserService(userRepository, mapper, userEventOutbox);
+        ReflectionTestUtils.setField(service, "defaultPageLimit", 50);
+        ReflectionTestUtils.setField(service, "maxPageLimit", 500);
+        ReflectionTestUtils.setField(service, "maxLookupIds", 3);
+    }
+
+    private static User user(long id, String email) {
+        User u = new User();
+        u.setId(id); u.setName("U" + id); u.setEmail(email); u.setAge(18);
+        return u;
+    }
+
+    private static UserDto dto(long id, String email) {
+        return new UserDto(id, "U" + id, email, 18, null, 0L);
     }
 
     @Test
     void getUserById_Ok() {
-        User u = new User();
-        u.setId(1L); u.setName("Bob"); u.setEmail("b@b.com"); u.setAge(20);
-        when(userRepository.findById(1L)).thenReturn(Optional.of(u));
+        when(userRepository.findDtoById(1L)).thenReturn(Optional.of(new UserDto(1L, "Bob", "b@b.com", 20, null, 0L)));
 
         var dto = service.getUserByID(1L);
 
         assertThat(dto.id()).isEqualTo(1L);
         assertThat(dto.email()).isEqualTo("b@b.com");
-        verify(userRepository, times(1)).findById(1L);
+        verify(userRepository, times(1)).findDtoById(1L);
+        verify(userRepository, never()).findById(any());
     }
 
     @Test
     void getUserById_NotFound() {
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userRepository.findDtoById(1L)).thenReturn(Optional.empty());
         assertThatThrownBy(() -> service.getUserByID(1L))
                 .isInstanceOf(NotFoundException.class);
     }
 
     @Test
-    void getAllUsers_ok() {
-        User u = new User();
-        u.setId(1L); u.setName("A"); u.setEmail("a@a.com"); u.setAge(18);
-        when(userRepository.findAll()).thenReturn(List.of(u));
+    void getUsersPage_moreRows_returnsLimitAndNextCursor() {
+        when(userRepository.findDtos(any(Specification.class), eq(Sort.by("id")), eq(3)))
+                .thenReturn(List.of(dto(1L, "a@a.com"), dto(2L, "b@b.com"), dto(3L, "c@c.com")));
+
+        var page = service.getUsersPage(2, null, UserSort.ID, Sort.Direction.ASC);
+
+        assertThat(page.items()).extracting("email").containsExactly("a@a.com", "b@b.com");
+        assertThat(page.hasNext()).isTrue();
+        assertThat(UserCursor.decode(page.nextCursor()).id()).isEqualTo(2L);
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void getUsersPage_lastPage_noCursor() {
+        when(userRepository.findDtos(any(Specification.class), any(Sort.class), anyInt()))
+                .thenReturn(List.of(dto(5L, "e@e.com")));
+
+        var page = service.getUsersPage(null, new UserCursor(null, 4L).encode(), UserSort.ID, Sort.Direction.ASC);
+
+        assertThat(page.items()).hasSize(1);
+        assertThat(page.hasNext()).isFalse();
+    }
+
+    @Test
+    void searchUsers_sameKeysetPaging() {
+        when(userRepository.findDtos(any(Specification.class), eq(Sort.by("id")), eq(3)))
+                .thenReturn(List.of(dto(1L, "a@a.com"), dto(2L, "b@b.com"), dto(3L, "c@c.com")));
+
+        var page = service.searchUsers(new UserSearchFilter("u", null, 18, 60, null, null),
+                2, null, UserSort.ID, Sort.Direction.ASC);
+
+        assertThat(page.items()).extracting("id").containsExactly(1L, 2L);
+        assertThat(UserCursor.decode(page.nextCursor()).id()).isEqualTo(2L);
+    }
+
+    @Test
+    void searchUsers_invertedRangesOrBlankText_badRequest() {
+        var now = LocalDateTime.now();
+        assertThatThrownBy(() -> service.searchUsers(new UserSearchFilter(null, null, 40, 30, null, null),
+                null, null, UserSort.ID, Sort.Direction.ASC)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> service.searchUsers(new UserSearchFilter(null, null, null, null, now, now),
+                null, null, UserSort.ID, Sort.Direction.ASC)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> service.searchUsers(new UserSearchFilter(" ", null, null, null, null, null),
+                null, null, UserSort.ID, Sort.Direction.ASC)).isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void lookupUsers_keepsRequestedOrder_reportsMissing_oneQuery() {
+        when(userRepository.findDtosByIdIn(any()))
+                .thenReturn(List.of(dto(1L, "a@a.com"), dto(3L, "c@c.com")));
+
+        var result = service.lookupUsers(List.of(3L, 2L, 1L));
+
+        assertThat(result.users()).extracting("id").containsExactly(3L, 1L);
+        assertThat(result.missing()).containsExactly(2L);
+        verify(userRepository, times(1)).findDtosByIdIn(any());
+        verify(userRepository, never()).findDtoById(any());
+    }
+
+    @Test
+    void lookupUsers_duplicateIds_queriedOnce() {
+        when(userRepository.findDtosByIdIn(any())).thenReturn(List.of(dto(5L, "e@e.com")));
+
+        var result = service.lookupUsers(List.of(5L, 5L, 5L));
 
-        var list = service.getAllUsers();
+        assertThat(result.users()).extracting("id").containsExactly(5L);
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(userRepository).findDtosByIdIn(ids.capture());
+        assertThat(ids.getValue()).containsExactly(5L);
+    }
+
+    @Test
+    void lookupUsers_emptyOrAboveLimit_badRequest() {
+        assertThatThrownBy(() -> service.lookupUsers(List.of()))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> service.lookupUsers(List.of(1L, 2L, 3L, 4L)))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(userRepository);
+    }
 
-        assertThat(list).hasSize(1);
-        assertThat(list.get(0).email()).isEqualTo("a@a.com");
-        verify(userRepository).findAll();
+    @Test
+    void getUsersPage_limitAboveMax_badRequest() {
+        assertThatThrownBy(() -> service.getUsersPage(501, null, UserSort.ID, Sort.Direction.ASC))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void getUsersPage_garbageCursor_badRequest() {
+        assertThatThrownBy(() -> service.getUsersPage(10, "%%%", UserSort.ID, Sort.Direction.ASC))
+                .isInstanceOf(BadRequestException.class);
     }
 
     @Test
@@ -82,11 +190,11 @@ class UserServiceTest {
                 .isInstanceOf(ConflictException.class);
 
         verify(userRepository, never()).save(any());
-        verify(userEventProducer, never()).send(any());
+        verify(userEventOutbox, never()).append(any());
     }
 
     @Test
-    void createUser_ok_savesEntity_andSendsEvent() {
+    void createUser_ok_savesEntity_andWritesEventToOutbox() {
         var dto = new UserCreateDto("A", "a@a.com", 20);
 
         when(userRepository.existsByEmail("a@a.com")).thenReturn(false);
@@ -103,7 +211,7 @@ class UserServiceTest {
         assertThat(result.email()).isEqualTo("a@a.com");
 
         ArgumentCaptor<UserEvent> captor = ArgumentCaptor.forClass(UserEvent.class);
-        verify(userEventProducer, times(1)).send(captor.capture());
+        verify(userEventOutbox, times(1)).append(captor.capture());
         assertThat(captor.getValue().getEventType()).isEqualTo(UserEvent.Type.USER_CREATED);
         assertThat(captor.getValue().getUserId()).isEqualTo(42L);
         assertThat(captor.getValue().getEmail()).isEqualTo("a@a.com");
@@ -111,47 +219,94 @@ class UserServiceTest {
 
     @Test
     void updateUser_notFound() {
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
-        assertThatThrownBy(() -> service.updateUser(1L, new UserUpdateDto("X","x@x.com",30)))
+        when(userRepository.updateReturning(1L, 3L, "X", "x@x.com", 30)).thenReturn(Optional.empty());
+        assertThatThrownBy(() -> service.updateUser(1L, 3L, new UserUpdateDto("X","x@x.com",30)))
                 .isInstanceOf(NotFoundException.class);
+        verify(userEventOutbox, never()).append(any());
     }
 
     @Test
     void updateUser_conflictEmail() {
-        User u = new User();
-        u.setId(1L); u.setName("Old"); u.setEmail("old@a.com"); u.setAge(19);
-        when(userRepository.findById(1L)).thenReturn(Optional.of(u));
-        when(userRepository.existsByEmail("new@a.com")).thenReturn(true);
+        when(userRepository.updateReturning(1L, null, "New", "new@a.com", 21))
+                .thenThrow(new DuplicateKeyException("users_email_key"));
 
-        assertThatThrownBy(() -> service.updateUser(1L, new UserUpdateDto("New", "new@a.com", 21)))
+        assertThatThrownBy(() -> service.updateUser(1L, null, new UserUpdateDto("New", "new@a.com", 21)))
                 .isInstanceOf(ConflictException.class);
 
+        verify(userRepository, never()).existsByEmail(any());
+        verify(userEventOutbox, never()).append(any());
+    }
+
+    @Test
+    void updateUser_ok_singleStatement_andWritesUpdatedEventToOutbox() {
+        when(userRepository.updateReturning(1L, 3L, "New", "new@a.com", 21))
+                .thenReturn(Optional.of(new UserChange(new UserDto(1L, "New", "new@a.com", 21, null, 4L), true)));
+
+        var result = service.updateUser(1L, 3L, new UserUpdateDto("New", "new@a.com", 21));
+
+        assertThat(result.email()).isEqualTo("new@a.com");
+        assertThat(result.version()).isEqualTo(4L);
+        ArgumentCaptor<UserEvent> captor = ArgumentCaptor.forClass(UserEvent.class);
+        verify(userEventOutbox).append(captor.capture());
+        assertThat(captor.getValue().getEventType()).isEqualTo(UserEvent.Type.USER_UPDATED);
+        assertThat(captor.getValue().getUserId()).isEqualTo(1L);
+        verify(userRepository, never()).findById(any());
         verify(userRepository, never()).save(any());
     }
 
+    @Test
+    void patchUser_onlyPassedFields_noOpSkipsEvent() {
+        when(userRepository.updateReturning(1L, 2L, null, null, 21))
+                .thenReturn(Optional.of(new UserChange(new UserDto(1L, "Old", "old@a.com", 21, null, 2L), false)));
+
+        var result = service.patchUser(1L, 2L, new UserPatchDto(null, null, 21));
+
+        assertThat(result.name()).isEqualTo("Old");
+        verify(userEventOutbox, never()).append(any());
+    }
+
+    @Test
+    void updateUser_staleVersion_preconditionFailed() {
+        when(userRepository.updateReturning(1L, 2L, null, null, 21))
+                .thenReturn(Optional.of(new UserChange(new UserDto(1L, "Old", "old@a.com", 20, null, 5L), false)));
+
+        assertThatThrownBy(() -> service.patchUser(1L, 2L, new UserPatchDto(null, null, 21)))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(userEventOutbox, never()).append(any());
+    }
+
+    @Test
+    void deleteUser_staleVersion_preconditionFailed() {
+        when(userRepository.deleteReturning(7L, 1L))
+                .thenReturn(Optional.of(new UserChange(new UserDto(7L, "X", "x@y.com", 20, null, 2L), false)));
+
+        assertThatThrownBy(() -> service.deleteUser(7L, 1L))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(userEventOutbox, never()).append(any());
+    }
+
     @Test
     void deleteUser_notFound() {
-        when(userRepository.findById(99L)).thenReturn(Optional.empty());
-        assertThatThrownBy(() -> service.deleteUser(99L))
+        when(userRepository.deleteReturning(99L, null)).thenReturn(Optional.empty());
+        assertThatThrownBy(() -> service.deleteUser(99L, null))
                 .isInstanceOf(NotFoundException.class);
-        verify(userRepository, never()).deleteById(anyLong());
-        verify(userEventProducer, never()).send(any());
+        verify(userEventOutbox, never()).append(any());
     }
 
     @Test
-    void deleteUser_ok_deletes_andSendsEvent() {
-        User u = new User();
-        u.setId(7L); u.setEmail("x@y.com");
-        when(userRepository.findById(7L)).thenReturn(Optional.of(u));
+    void deleteUser_ok_deletes_andWritesEventToOutbox() {
+        when(userRepository.deleteReturning(7L, 2L))
+                .thenReturn(Optional.of(new UserChange(new UserDto(7L, "X", "x@y.com", 20, null, 2L), true)));
 
-        service.deleteUser(7L);
+        service.deleteUser(7L, 2L);
 
-        verify(userRepository).deleteById(7L);
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).deleteById(anyLong());
 
         ArgumentCaptor<UserEvent> captor = ArgumentCaptor.forClass(UserEvent.class);
-        verify(userEventProducer).send(captor.capture());
+        verify(userEventOutbox).append(captor.capture());
         assertThat(captor.getValue().getEventType()).isEqualTo(UserEvent.Type.USER_DELETED);
         assertThat(captor.getValue().getUserId()).isEqualTo(7L);
         assertThat(captor.getValue().getEmail()).isEqualTo("x@y.com");
     }
-}
\ No newline at end of file
+}